@@ -0,0 +1,94 @@
+package com.example.android;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.moodstocks.android.Image;
+import com.moodstocks.android.MoodstocksError;
+import com.moodstocks.android.Result;
+
+/* Throughput of `BatchScanner` over a batch of ITEMS stored images,
+ * against a stub engine, for pools of 1 to 4 workers. Decoding a photo
+ * and scanning it are modelled as `decode` and `scan` units of
+ * `Blackhole.consumeCPU()`, as neither the Android decoder nor the SDK
+ * is available off the device. The score is the time per item, from
+ * `start()` until the consumer has taken every outcome.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+	private static final int ITEMS = 256;
+	private static final Image IMG = new Image(new byte[1], 1, 1, 1, 0);
+
+	@Param({ "1", "2", "4" })
+	public int workers;
+
+	@Param({ "20000" })
+	public long decode;
+
+	@Param({ "20000" })
+	public long scan;
+
+	// ITEMS items, each one costing `decode` to read.
+	private class Items implements BatchScanner.Source {
+		private int next = 0;
+
+		@Override
+		public String next() {
+			return next < ITEMS ? Integer.toString(next++) : null;
+		}
+
+		@Override
+		public Image load(String id) {
+			Blackhole.consumeCPU(decode);
+			return IMG;
+		}
+	}
+
+	private final BatchScanner.EngineFactory engines = new BatchScanner.EngineFactory() {
+		@Override
+		public BatchScanner.Engine create() {
+			return new BatchScanner.Engine() {
+				@Override
+				public Result scan(Image img) throws MoodstocksError, InterruptedException {
+					Blackhole.consumeCPU(scan);
+					return null;
+				}
+
+				@Override
+				public void cancel() {
+					// void implementation
+				}
+			};
+		}
+	};
+
+	@Benchmark
+	@OperationsPerInvocation(ITEMS)
+	public long batch() throws InterruptedException {
+		BatchScanner b = new BatchScanner(engines, workers, 16);
+		b.start(new Items());
+		while (b.take() != null) {
+			// drain
+		}
+		return b.getCompleted();
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.example.android;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* `ContrastStretcher` on recorded frames, as they are (well lit: only
+ * measured) or darkened to a quarter of their levels (measured then
+ * stretched). The stretch works in place, so each operation first
+ * restores the frame into a working buffer: `restoreOnly` is that copy
+ * alone, to subtract from `apply`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContrastBenchmark {
+
+	@Param({ "lit", "dark" })
+	public String lighting;
+
+	private byte[][] frames;
+	private byte[] work;
+	private int width;
+	private int height;
+	private ContrastStretcher stretcher = new ContrastStretcher();
+	private ScanRegion roi = new ScanRegion();
+	private int index = 0;
+
+	@Setup
+	public void setup() throws IOException {
+		FrameReplayer r = Fixtures.replayer();
+		r.next();
+		width = r.getWidth();
+		height = r.getHeight();
+		frames = Fixtures.frames();
+		if (lighting.equals("dark")) {
+			for (byte[] f : frames) {
+				for (int i = 0; i < width*height; ++i) {
+					f[i] = (byte)((f[i] & 0xff)/4);
+				}
+			}
+		}
+		work = new byte[frames[0].length];
+		roi.setCentered(0.6f);
+		roi.layout(width, height);
+	}
+
+	private byte[] restore() {
+		byte[] f = frames[index];
+		index = (index + 1) % frames.length;
+		System.arraycopy(f, 0, work, 0, width*height);
+		return work;
+	}
+
+	@Benchmark
+	public byte[] restoreOnly() {
+		return restore();
+	}
+
+	@Benchmark
+	public boolean apply() {
+		byte[] f = restore();
+		return stretcher.apply(f, roi.getX(), roi.getY(), roi.getWidth(), roi.getHeight(), width);
+	}
+
+}
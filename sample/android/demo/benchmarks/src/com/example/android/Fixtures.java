@@ -0,0 +1,78 @@
+package com.example.android;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/* Frame fixtures for the benchmarks.
+ *
+ * Frames come from a `FrameRecorder` file, either the one named by the
+ * `fixture` system property (e.g. pulled from a device) or a synthetic
+ * one recorded on first use: WIDTH x HEIGHT NV21 frames of a textured
+ * pattern panning slowly, with sensor-like noise.
+ */
+public class Fixtures {
+
+	public static final int WIDTH = 640;
+	public static final int HEIGHT = 480;
+	public static final int FRAMES = 32;
+
+	private static File recording = null;
+
+	private Fixtures() {
+		super();
+	}
+
+	// the recording to replay.
+	public static synchronized FrameReplayer replayer() throws IOException {
+		String path = System.getProperty("fixture");
+		if (path != null) return new FrameReplayer(new File(path));
+		if (recording == null) {
+			File f = File.createTempFile("frames", ".bin");
+			f.deleteOnExit();
+			FrameRecorder recorder = new FrameRecorder(f);
+			byte[] frame = new byte[WIDTH*HEIGHT*3/2];
+			Random random = new Random(0);
+			for (int i = 0; i < FRAMES; ++i) {
+				draw(frame, WIDTH, HEIGHT, i, random);
+				// wait for the writer rather than dropping frames.
+				while (!recorder.record(frame, WIDTH, HEIGHT, 90)) Thread.yield();
+			}
+			recorder.close();
+			recording = f;
+		}
+		return new FrameReplayer(recording);
+	}
+
+	// loads every frame of the recording in memory.
+	public static byte[][] frames() throws IOException {
+		FrameReplayer r = replayer();
+		byte[][] frames = new byte[r.getFrameCount()][];
+		for (int i = 0; i < frames.length && r.next(); ++i) {
+			frames[i] = new byte[r.getLength()];
+			r.read(frames[i]);
+		}
+		return frames;
+	}
+
+	/* draws frame `index` of the synthetic sequence into `data`: a
+	 * checkerboard of 24 px cells with soft edges, shifted by 2 px per
+	 * frame, plus +/- 8 levels of noise.
+	 */
+	public static void draw(byte[] data, int w, int h, int index, Random random) {
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w; ++x) {
+				int u = x + 2*index;
+				boolean on = ((u/24) + (y/24)) % 2 == 0;
+				int v = on ? 180 : 60;
+				if (u % 24 == 0 || y % 24 == 0) v = 120;
+				v += random.nextInt(17) - 8;
+				data[y*w + x] = (byte)v;
+			}
+		}
+		for (int i = w*h; i < w*h*3/2; ++i) {
+			data[i] = (byte)128;
+		}
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.example.android;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* NV21 buffer handling: a frame travels from the ring to the "camera",
+ * which fills it, and back once scanned, as in `CameraManager`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameBufferBenchmark {
+
+	private byte[][] frames;
+	private FrameRing ring;
+	private int index = 0;
+
+	@Setup
+	public void setup() throws IOException {
+		frames = Fixtures.frames();
+		ring = new FrameRing();
+		ring.resize(CameraManager.DEFAULT_BUFFERS, frames[0].length);
+	}
+
+	@Benchmark
+	public byte[] cycle() {
+		byte[] b = ring.acquire();
+		byte[] f = frames[index];
+		index = (index + 1) % frames.length;
+		System.arraycopy(f, 0, b, 0, f.length);
+		ring.release(b);
+		return b;
+	}
+
+	// ring bookkeeping alone, without the frame copy.
+	@Benchmark
+	public byte[] acquireRelease() {
+		byte[] b = ring.acquire();
+		ring.release(b);
+		return b;
+	}
+
+}
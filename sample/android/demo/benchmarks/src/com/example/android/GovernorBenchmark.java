@@ -0,0 +1,88 @@
+package com.example.android;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* `ScanGovernor` driving a simulated 30 fps preview on a fake clock: each
+ * operation is one frame, 33 ms after the previous one, scanned or not
+ * as the governor decides, a scan lasting `latency` ms. The scene is
+ * either static with nothing to find, moving (a scene change every
+ * second), or static with a result every other second. The score is the
+ * cost of the decision; the `scans` and `skipped` counters tell how much
+ * scanning the policy saves in each case.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GovernorBenchmark {
+
+	private static final long FRAME = 33;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters {
+		public long scans;
+		public long skipped;
+	}
+
+	// clock moved by the benchmark, one frame at a time.
+	private static class FrameClock implements Clock {
+		long now = 0;
+
+		@Override
+		public long now() {
+			return now;
+		}
+	}
+
+	@Param({ "static", "moving", "results" })
+	public String scene;
+
+	@Param({ "10", "60" })
+	public long latency;
+
+	private FrameClock clock;
+	private ScanGovernor governor;
+	private long frame = 0;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		clock = new FrameClock();
+		governor = new ScanGovernor(clock);
+		frame = 0;
+	}
+
+	@Benchmark
+	public boolean frame(Counters c) {
+		clock.now += FRAME;
+		++frame;
+		// a second is about 30 frames.
+		boolean second = frame % 30 == 0;
+		if (second && scene.equals("moving")) governor.onSceneChange();
+		if (!governor.shouldScan()) {
+			++c.skipped;
+			return false;
+		}
+		++c.scans;
+		boolean found = scene.equals("results") && second && frame % 60 == 0;
+		governor.onScan(latency, found);
+		return true;
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.example.android;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// status strings of `Overlay` and progress label of `Splash`.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LabelBenchmark {
+
+	private int current = 0;
+	private final StringBuilder label = new StringBuilder(32);
+
+	@Benchmark
+	public String overlayDecoding() {
+		return Overlay.eanLabel(true, (current++ & 1) == 0);
+	}
+
+	@Benchmark
+	public String overlayImages() {
+		return Overlay.imagesLabel(current++ & 0xfff);
+	}
+
+	@Benchmark
+	public StringBuilder splashProgress() {
+		current = (current + 1) % 50000;
+		label.setLength(0);
+		return Splash.progressLabel(50000, current, label);
+	}
+
+}
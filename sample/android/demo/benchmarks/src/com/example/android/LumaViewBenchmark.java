@@ -0,0 +1,89 @@
+package com.example.android;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* One pass over the displayed luma of recorded frames, read through a
+ * `LumaView` in place versus rotated into a buffer with the tiled
+ * `copyTo()` first, as a preprocessing step working in display
+ * coordinates would. `copy` is the rotation alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LumaViewBenchmark {
+
+	@Param({ "0", "90" })
+	public int rotation;
+
+	private byte[][] frames;
+	private int width;
+	private int height;
+	private LumaView view = new LumaView();
+	private byte[] rotated = null;
+	private int index = 0;
+
+	@Setup
+	public void setup() throws IOException {
+		FrameReplayer r = Fixtures.replayer();
+		r.next();
+		width = r.getWidth();
+		height = r.getHeight();
+		frames = Fixtures.frames();
+	}
+
+	private LumaView next() {
+		byte[] f = frames[index];
+		index = (index + 1) % frames.length;
+		view.set(f, 0, width, height, width, LumaView.quarters(rotation), false);
+		return view;
+	}
+
+	@Benchmark
+	public long inPlace() {
+		LumaView v = next();
+		int w = v.getWidth();
+		int h = v.getHeight();
+		long sum = 0;
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w; ++x) {
+				sum += v.get(x, y);
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long copied() {
+		LumaView v = next();
+		rotated = v.copyTo(rotated);
+		int n = v.getWidth()*v.getHeight();
+		long sum = 0;
+		for (int i = 0; i < n; ++i) {
+			sum += rotated[i] & 0xff;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public byte[] copy() {
+		rotated = next().copyTo(rotated);
+		return rotated;
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.example.android;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* Overhead of `PipelineMetrics` per frame: what a scanned frame records
+ * on its way through `ScanActivity`, i.e. three counters and the four
+ * stage latencies, each with its `System.nanoTime()` call.
+ *
+ * At 30 fps the frame budget is 33 ms, so staying under 1% means less
+ * than 333 us per frame; `frame` should be several orders of magnitude
+ * below. `contended` runs it from the camera, worker and UI threads at
+ * once, as on the device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+	private PipelineMetrics metrics = PipelineMetrics.get();
+
+	@Benchmark
+	public void frame() {
+		long received = System.nanoTime();
+		metrics.frameReceived();
+		metrics.record(PipelineMetrics.QUEUE, received);
+		long scan = System.nanoTime();
+		metrics.record(PipelineMetrics.SCAN, scan);
+		metrics.frameScanned();
+		long render = System.nanoTime();
+		metrics.record(PipelineMetrics.RENDER, render);
+		metrics.resultFound();
+		metrics.record(PipelineMetrics.TOTAL, received);
+	}
+
+	@Benchmark
+	@Threads(3)
+	public void contended() {
+		frame();
+	}
+
+	// what `ScanActivity.onPause()` logs.
+	@Benchmark
+	public String dump() {
+		return metrics.dump();
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.example.android;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.moodstocks.android.Image;
+import com.moodstocks.android.MoodstocksError;
+import com.moodstocks.android.Result;
+import com.moodstocks.android.ScannerSession;
+
+/* `ParallelScanner` versus a single session running every decoder in
+ * turn, on a frame where nothing is found. The SDK decoders are not
+ * available off the device: each enabled type is modelled as `work`
+ * units of `Blackhole.consumeCPU()`. Sequentially they run one after the
+ * other on the caller thread; in parallel each session runs its own on a
+ * thread of a pool, and the caller waits for the last one. With no work,
+ * the score is the cost of the fan-out itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelScanBenchmark {
+
+	private static final int OPTIONS =
+			Result.Type.IMAGE | Result.Type.EAN8 | Result.Type.EAN13 | Result.Type.QRCODE;
+	private static final Image IMG = new Image(new byte[1], 1, 1, 1, 0);
+
+	@Param({ "0", "20000" })
+	public long work;
+
+	// waits for the outcome of a scan.
+	private static class Outcome implements ScannerSession.ScanListener {
+		private boolean done = false;
+
+		@Override
+		public void onScanStart() {
+			// void implementation
+		}
+
+		@Override
+		public synchronized void onScanComplete(Result r) {
+			done = true;
+			notifyAll();
+		}
+
+		@Override
+		public synchronized void onScanFailed(MoodstocksError e) {
+			done = true;
+			notifyAll();
+		}
+
+		synchronized void await() throws InterruptedException {
+			while (!done) wait();
+			done = false;
+		}
+	}
+
+	private ParallelScanner parallel;
+	private Runnable[] decoders;
+	private ExecutorService pool;
+	private ScannerSession single;
+	private final Outcome outcome = new Outcome();
+
+	@Setup
+	public void setup() {
+		final List<ScannerSession> sessions;
+		synchronized(ScannerSession.created) {
+			int from = ScannerSession.created.size();
+			parallel = new ParallelScanner(null, OPTIONS);
+			sessions = new ArrayList<ScannerSession>(
+					ScannerSession.created.subList(from, ScannerSession.created.size()));
+		}
+		decoders = new Runnable[sessions.size()];
+		for (int i = 0; i < decoders.length; ++i) {
+			final ScannerSession s = sessions.get(i);
+			decoders[i] = new Runnable() {
+				@Override
+				public void run() {
+					Blackhole.consumeCPU(work);
+					s.last.onScanComplete(null);
+				}
+			};
+		}
+		pool = Executors.newFixedThreadPool(decoders.length);
+		single = new ScannerSession(null);
+		single.setOptions(OPTIONS);
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public void sequential() throws InterruptedException {
+		single.scan(outcome, IMG);
+		for (int i = 0; i < decoders.length; ++i) {
+			Blackhole.consumeCPU(work);
+		}
+		single.last.onScanComplete(null);
+		outcome.await();
+	}
+
+	@Benchmark
+	public void parallel() throws InterruptedException {
+		parallel.scan(outcome, IMG);
+		for (Runnable d : decoders) {
+			pool.execute(d);
+		}
+		outcome.await();
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.example.android;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// `CameraManager.findBestPreviewSize()` selection logic.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreviewSizeBenchmark {
+
+	// preview sizes of a typical phone camera.
+	private int[] sizes = {
+		1920, 1080, 1280, 720, 1280, 960, 1024, 768, 960, 720,
+		864, 480, 800, 480, 768, 432, 720, 480, 640, 480,
+		576, 432, 480, 320, 384, 288, 352, 288, 320, 240, 176, 144
+	};
+
+	@Benchmark
+	public int wideScreen() {
+		return CameraManager.selectPreviewSize(sizes, 16.0f/9.0f);
+	}
+
+	@Benchmark
+	public int noMatchingRatio() {
+		return CameraManager.selectPreviewSize(sizes, 2.5f);
+	}
+
+}
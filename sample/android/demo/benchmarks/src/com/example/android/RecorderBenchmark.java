@@ -0,0 +1,69 @@
+package com.example.android;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* Frame recording under load: frames are pushed as fast as possible,
+ * as a camera thread that never waits would. The score is the time
+ * `record()` takes on the caller thread; the `written` and `dropped`
+ * counters tell how much of the load the writer thread kept up with.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecorderBenchmark {
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters {
+		public long written;
+		public long dropped;
+	}
+
+	private byte[][] frames;
+	private File file;
+	private FrameRecorder recorder;
+	private int index = 0;
+
+	@Setup(Level.Iteration)
+	public void setup() throws IOException {
+		if (frames == null) frames = Fixtures.frames();
+		file = File.createTempFile("record", ".bin");
+		recorder = new FrameRecorder(file);
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		recorder.close();
+		file.delete();
+	}
+
+	@Benchmark
+	public boolean record(Counters c) {
+		byte[] f = frames[index];
+		index = (index + 1) % frames.length;
+		boolean ok = recorder.record(f, Fixtures.WIDTH, Fixtures.HEIGHT, 90);
+		if (ok) ++c.written;
+		else ++c.dropped;
+		return ok;
+	}
+
+}
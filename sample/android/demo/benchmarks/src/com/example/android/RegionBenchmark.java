@@ -0,0 +1,83 @@
+package com.example.android;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.moodstocks.android.Image;
+
+/* Per-frame cost of full-frame versus region scanning on recorded
+ * frames, up to the SDK call: building the query image (packing the
+ * region when it is not anchored) and the app passes over the scanned
+ * pixels (sharpness and scene signature). The SDK decoding itself is
+ * not available off the device; it scales with the scanned area, i.e.
+ * 36% of the frame for a 0.6 centered region.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionBenchmark {
+
+	@Param({ "full", "centered", "anchored" })
+	public String region;
+
+	private byte[][] frames;
+	private int width;
+	private int height;
+	private ScanRegion roi = new ScanRegion();
+	private int[] signature = new int[SceneDetector.GRID*SceneDetector.GRID];
+	private int index = 0;
+
+	@Setup
+	public void setup() throws IOException {
+		FrameReplayer r = Fixtures.replayer();
+		r.next();
+		width = r.getWidth();
+		height = r.getHeight();
+		frames = Fixtures.frames();
+		if (region.equals("full")) {
+			roi.setCentered(1.0f);
+		}
+		else if (region.equals("centered")) {
+			roi.setCentered(0.6f);
+		}
+		else {
+			roi.set(0, 0, width*6/10, height*6/10);
+		}
+		roi.layout(width, height);
+	}
+
+	@Benchmark
+	public Image image() {
+		byte[] f = frames[index];
+		index = (index + 1) % frames.length;
+		return roi.image(f, width, 90);
+	}
+
+	@Benchmark
+	public float frame() {
+		byte[] f = frames[index];
+		index = (index + 1) % frames.length;
+		float score = SharpnessGate.measure(f, roi.getX(), roi.getY(),
+				roi.getWidth(), roi.getHeight(), width, SharpnessGate.DEFAULT_STEP);
+		SceneDetector.signature(f, roi.getX(), roi.getY(),
+				roi.getWidth(), roi.getHeight(), width, SceneDetector.DEFAULT_STEP, signature);
+		roi.image(f, width, 90);
+		return score + signature[0];
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.example.android;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.moodstocks.android.Result;
+
+/* `ScanActivity.onResult()` dedupe: results go through the consensus
+ * and the status model, whose dirty flags decide whether the overlay
+ * is refreshed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultDedupeBenchmark {
+
+	private Result[] outcomes;
+	private ResultConsensus consensus;
+	private ScanStatus status;
+	private int index = 0;
+
+	@Setup
+	public void setup() {
+		Result ean = new Result(Result.Type.EAN13, "9782070612758");
+		Result qr = new Result(Result.Type.QRCODE, "http://www.example.com");
+		// a code read on most frames, with misses and a flicker.
+		outcomes = new Result[] { ean, ean, null, ean, qr, ean, ean, null };
+		consensus = new ResultConsensus(2, 3);
+		status = new ScanStatus();
+	}
+
+	@Benchmark
+	public boolean onResult() {
+		Result r = outcomes[index];
+		index = (index + 1) % outcomes.length;
+		Result confirmed = consensus.add(r);
+		if (confirmed != null) {
+			status.setResult(confirmed.getType(), confirmed.getValue());
+		}
+		boolean dirty = status.isDirty();
+		status.clearDirty();
+		return dirty;
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.example.android;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* `SceneDetector` on a static and a moving sequence, checking each frame
+ * and committing those that would be scanned, as `ScanActivity` does.
+ * The static sequence is the first frame of the recording over and over,
+ * with fresh sensor noise. The moving one is the recording given with
+ * `-Dfixture`, if any. Otherwise it is a smooth texture panning by PAN
+ * px per frame: the panning checkerboard of the synthetic recording is
+ * periodic, and its block means hardly change. The score is the cost of
+ * the check; the `same`, `changed` and `refreshed` counters tell how
+ * many scans each sequence saves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SceneBenchmark {
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters {
+		public long same;
+		public long changed;
+		public long refreshed;
+	}
+
+	private static final int PAN = 8;
+
+	@Param({ "static", "moving" })
+	public String sequence;
+
+	private byte[][] frames;
+	private int width;
+	private int height;
+	private SceneDetector detector;
+	private int index = 0;
+
+	@Setup(Level.Trial)
+	public void load() throws IOException {
+		FrameReplayer r = Fixtures.replayer();
+		r.next();
+		width = r.getWidth();
+		height = r.getHeight();
+		frames = Fixtures.frames();
+		if (sequence.equals("static")) {
+			Random random = new Random(1);
+			for (int i = 0; i < frames.length; ++i) {
+				Fixtures.draw(frames[i], width, height, 0, random);
+			}
+		}
+		else if (System.getProperty("fixture") == null) {
+			Random random = new Random(1);
+			for (int i = 0; i < frames.length; ++i) {
+				pan(frames[i], width, height, PAN*i, random);
+			}
+		}
+	}
+
+	// a smooth texture seen from `shift` px to the right, with noise.
+	private static void pan(byte[] data, int w, int h, int shift, Random random) {
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w; ++x) {
+				double v = 128 + 100*Math.sin((x + shift)/37.0)*Math.cos(y/23.0);
+				data[y*w + x] = (byte)((int)v + random.nextInt(9) - 4);
+			}
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		detector = new SceneDetector();
+		index = 0;
+	}
+
+	@Benchmark
+	public int check(Counters c) {
+		byte[] f = frames[index];
+		index = (index + 1) % frames.length;
+		int outcome = detector.check(f, 0, 0, width, height, width);
+		if (outcome == SceneDetector.SAME) {
+			++c.same;
+		}
+		else {
+			if (outcome == SceneDetector.CHANGED) ++c.changed;
+			else ++c.refreshed;
+			detector.commit();
+		}
+		return outcome;
+	}
+
+}
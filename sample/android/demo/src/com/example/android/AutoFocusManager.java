@@ -1,48 +1,83 @@
 package com.example.android;
 
-import android.hardware.Camera;
-import android.os.Handler;
-import android.os.Message;
-import android.util.Log;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
-public class AutoFocusManager extends Handler implements Camera.AutoFocusCallback {
+/* Drives `FocusController` for a camera: the controller is asked
+ * whether to refocus every TICK_DELAY ms, on `scheduler`.
+ */
+public class AutoFocusManager implements CameraSource.FocusCallback, FocusController.Lens {
 
 	public static final String TAG = "Autofocus";
 
-	private Camera camera;
-	private static int FOCUS_REQUEST;
+	private CameraSource camera;
+	private FocusController controller;
+	private ScheduledExecutorService scheduler;
+	private ScheduledFuture<?> ticks = null;
 
-	private static final long FOCUS_DELAY = 1500;
+	// how often the controller is asked whether to refocus.
+	private static final long TICK_DELAY = 100;
 
-	public AutoFocusManager(Camera cam) {
+	public AutoFocusManager(CameraSource cam, ScheduledExecutorService scheduler, Logger log) {
 		if (cam != null) {
 			this.camera = cam;
 		}
 		else {
-			Log.e(TAG, "AutofocusManager passed null camera");
+			log.error(TAG, "AutofocusManager passed null camera", null);
 		}
+		this.scheduler = scheduler;
+		controller = new FocusController(this, Clock.SYSTEM);
 	}
 
-	public void start() {
-		if (camera != null) {
-			camera.autoFocus(this);
+	public synchronized void start() {
+		if (camera != null && ticks == null) {
+			controller.start();
+			try {
+				ticks = scheduler.scheduleWithFixedDelay(new Runnable() {
+					@Override
+					public void run() {
+						controller.tick();
+					}
+				}, TICK_DELAY, TICK_DELAY, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				// the camera is being released.
+			}
 		}
 	}
 
-	public void stop() {
-		this.removeMessages(FOCUS_REQUEST);
+	public synchronized void stop() {
+		if (ticks != null) {
+			ticks.cancel(false);
+			ticks = null;
+		}
+		controller.stop();
+	}
+
+	// feeds the sharpness of the latest frame to the focus policy.
+	public void onSharpness(float score) {
+		controller.onSharpness(score);
 	}
 
+	public void onSceneChange() {
+		controller.onSceneChange();
+	}
+
+	//----------------------
+	// FocusController.Lens
+	//----------------------
 	@Override
-	public void handleMessage(Message m) {
-		if (m.what == FOCUS_REQUEST && camera != null) {
-			camera.autoFocus(this);
-		}
+	public void autoFocus() {
+		camera.autoFocus(this);
 	}
 
+	//-----------------------------
+	// CameraSource.FocusCallback
+	//-----------------------------
 	@Override
-	public void onAutoFocus(boolean success, Camera camera) {
-		this.sendEmptyMessageDelayed(FOCUS_REQUEST, FOCUS_DELAY);
+	public void onFocus(boolean success) {
+		controller.onFocus(success);
 	}
 
 }
@@ -0,0 +1,345 @@
+package com.example.android;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.moodstocks.android.*;
+
+/* Scans a stream of stored images, e.g. product photos, against the
+ * synced database on a fixed number of worker threads, each owning its
+ * own scanning engine (a `ScannerSession` by default).
+ *
+ * Workers pull items from the source as they become free, read them in
+ * parallel, and push
+ * outcomes into a bounded queue drained with `take()`: when the consumer
+ * falls behind, workers block, and so does the reading of the source.
+ * Nothing but the Moodstocks `Image` and `Result` types is used, so a
+ * batch can run on a plain JVM against a stub `Engine`.
+ */
+public class BatchScanner {
+
+	public static final String TAG = "BatchScanner";
+
+	public static interface Source {
+		/* reserves the next item to scan and returns its id, or null once
+		 * exhausted. Called from the workers one at a time, so it should
+		 * be cheap: reading the item is left to `load()`.
+		 */
+		public String next();
+		/* reads the image of the item `id` returned by `next()`. Called
+		 * from several workers at a time. If it throws, the item is
+		 * reported as failed.
+		 */
+		public Image load(String id) throws IOException;
+	}
+
+	public static interface Engine {
+		// scans `img`, blocking until done. Returns null if nothing is found.
+		public Result scan(Image img) throws MoodstocksError, InterruptedException;
+		public void cancel();
+	}
+
+	public static interface EngineFactory {
+		// called once by each worker.
+		public Engine create();
+	}
+
+	public static interface ProgressListener {
+		// called from a worker thread.
+		public void onProgress(BatchScanner batch);
+	}
+
+	public static class Outcome {
+		public final String id;
+		public final Result result;
+		public final Exception error;
+		// time spent scanning, in ns.
+		public final long duration;
+
+		Outcome(String id, Result result, Exception error, long duration) {
+			this.id = id;
+			this.result = result;
+			this.error = error;
+			this.duration = duration;
+		}
+	}
+
+	// marks the end of the outcomes.
+	private static final Outcome END = new Outcome(null, null, null, 0);
+
+	private EngineFactory factory;
+	private int nb_workers;
+	private BlockingQueue<Outcome> outcomes;
+	private ExecutorService pool = null;
+	private Source source = null;
+	private ProgressListener progress = null;
+	private int progress_interval = 1;
+	private volatile boolean cancelled = false;
+	private boolean finished = false;
+	private int running = 0;
+	private long start_time = 0;
+	private long end_time = 0;
+
+	// counters
+	private long completed = 0;
+	private long found = 0;
+	private long failed = 0;
+
+	/* `workers` threads scan in parallel, and at most `capacity` outcomes
+	 * wait for the consumer before the workers stop.
+	 */
+	public BatchScanner(EngineFactory factory, int workers, int capacity) {
+		super();
+		this.factory = factory;
+		this.nb_workers = workers < 1 ? 1 : workers;
+		this.outcomes = new ArrayBlockingQueue<Outcome>(capacity < 1 ? 1 : capacity);
+	}
+
+	// engines backed by one `ScannerSession` each, with the given options.
+	public static EngineFactory sessionFactory(final Scanner scanner, final int options) {
+		return new EngineFactory() {
+			@Override
+			public Engine create() {
+				return new SessionEngine(scanner, options);
+			}
+		};
+	}
+
+	// `l` is notified every `interval` outcomes, and once at the end.
+	public synchronized void setProgressListener(ProgressListener l, int interval) {
+		this.progress = l;
+		this.progress_interval = interval < 1 ? 1 : interval;
+	}
+
+	public synchronized void start(Source src) {
+		if (pool != null) return;
+		source = src;
+		start_time = Clock.SYSTEM.now();
+		running = nb_workers;
+		pool = Executors.newFixedThreadPool(nb_workers);
+		for (int i = 0; i < nb_workers; ++i) {
+			pool.execute(new Worker());
+		}
+	}
+
+	/* returns the next outcome, waiting for it if needed, or null once
+	 * every item has been scanned or the batch is cancelled.
+	 */
+	public Outcome take() throws InterruptedException {
+		synchronized(this) {
+			if (finished || cancelled) return null;
+		}
+		Outcome o = outcomes.take();
+		if (o == END || cancelled) {
+			synchronized(this) {
+				finished = true;
+			}
+			return null;
+		}
+		return o;
+	}
+
+	/* stops the workers and discards pending outcomes. Scans in flight
+	 * are cancelled.
+	 */
+	public void cancel() {
+		ExecutorService p;
+		synchronized(this) {
+			if (cancelled) return;
+			cancelled = true;
+			p = pool;
+		}
+		if (p != null) p.shutdownNow();
+		outcomes.clear();
+		// wake up a consumer waiting in `take()`.
+		outcomes.offer(END);
+	}
+
+	// waits for the workers to be done, e.g. after `cancel()`.
+	public boolean await(long timeout) throws InterruptedException {
+		ExecutorService p;
+		synchronized(this) {
+			p = pool;
+		}
+		if (p == null) return true;
+		p.shutdown();
+		return p.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	//----------
+	// Counters
+	//----------
+	public synchronized long getCompleted() {
+		return completed;
+	}
+
+	public synchronized long getFound() {
+		return found;
+	}
+
+	public synchronized long getFailed() {
+		return failed;
+	}
+
+	public synchronized boolean isDone() {
+		return running == 0 && pool != null;
+	}
+
+	// items scanned per second since `start()`.
+	public synchronized float getThroughput() {
+		long end = running == 0 ? end_time : Clock.SYSTEM.now();
+		long elapsed = end - start_time;
+		return elapsed <= 0 ? 0 : 1000.0f*completed/elapsed;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return TAG+": "+completed+" scanned, "+found+" found, "+failed+" failed, "+
+				getThroughput()+" items/s";
+	}
+
+	//---------
+	// Workers
+	//---------
+	private class Worker implements Runnable {
+
+		@Override
+		public void run() {
+			Engine engine = factory.create();
+			try {
+				while (!cancelled) {
+					String id;
+					Image img;
+					Outcome o;
+					synchronized(source) {
+						id = source.next();
+					}
+					if (id == null) break;
+					try {
+						img = source.load(id);
+					} catch (IOException e) {
+						publish(new Outcome(id, null, e, 0));
+						continue;
+					}
+					long start = System.nanoTime();
+					try {
+						Result r = engine.scan(img);
+						o = new Outcome(id, r, null, System.nanoTime() - start);
+					} catch (MoodstocksError e) {
+						o = new Outcome(id, null, e, System.nanoTime() - start);
+					}
+					publish(o);
+				}
+			} catch (InterruptedException e) {
+				// cancelled
+			} finally {
+				engine.cancel();
+				onWorkerDone();
+			}
+		}
+
+	}
+
+	// hands an outcome to the consumer, waiting for room if needed.
+	private void publish(Outcome o) throws InterruptedException {
+		outcomes.put(o);
+		ProgressListener l = null;
+		synchronized(this) {
+			++completed;
+			if (o.error != null) ++failed;
+			else if (o.result != null) ++found;
+			if (completed % progress_interval == 0) l = progress;
+		}
+		if (l != null) l.onProgress(this);
+	}
+
+	private void onWorkerDone() {
+		ProgressListener l;
+		synchronized(this) {
+			if (--running > 0) return;
+			end_time = Clock.SYSTEM.now();
+			l = progress;
+			// let the threads die once their task is over.
+			pool.shutdown();
+		}
+		if (!cancelled) {
+			try {
+				outcomes.put(END);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (l != null) l.onProgress(this);
+	}
+
+	//-----------------------------
+	// Engine using a ScannerSession
+	//-----------------------------
+	private static class SessionEngine implements Engine, ScannerSession.ScanListener {
+
+		private ScannerSession session;
+		private boolean scanning = false;
+		private Result result = null;
+		private MoodstocksError error = null;
+
+		SessionEngine(Scanner scanner, int options) {
+			session = new ScannerSession(scanner);
+			session.setOptions(options);
+		}
+
+		@Override
+		public Result scan(Image img) throws MoodstocksError, InterruptedException {
+			synchronized(this) {
+				scanning = true;
+				result = null;
+				error = null;
+			}
+			session.scan(this, img);
+			synchronized(this) {
+				try {
+					while (scanning) wait();
+				} catch (InterruptedException e) {
+					scanning = false;
+					session.scanCancel();
+					throw e;
+				}
+				if (error != null) throw error;
+				return result;
+			}
+		}
+
+		@Override
+		public void cancel() {
+			session.scanCancel();
+			synchronized(this) {
+				scanning = false;
+				notifyAll();
+			}
+		}
+
+		@Override
+		public void onScanStart() {
+			// void implementation
+		}
+
+		@Override
+		public synchronized void onScanComplete(Result r) {
+			result = r;
+			scanning = false;
+			notifyAll();
+		}
+
+		@Override
+		public synchronized void onScanFailed(MoodstocksError e) {
+			error = e;
+			scanning = false;
+			notifyAll();
+		}
+
+	}
+
+}
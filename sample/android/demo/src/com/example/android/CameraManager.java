@@ -3,23 +3,46 @@ package com.example.android;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
-import android.util.Log;
-import android.view.Display;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
-import android.view.WindowManager;
-import android.graphics.ImageFormat;
-import android.hardware.Camera;
-import android.hardware.Camera.Parameters;
-import android.hardware.Camera.Size;
 
-public class CameraManager implements SurfaceHolder.Callback, Camera.PreviewCallback {
+import com.moodstocks.android.OrientationListener;
 
-	public static interface Listener extends Camera.PreviewCallback {
+/* Owns the camera on behalf of the scanning activity.
+ *
+ * Opening and configuring the camera takes hundreds of milliseconds on
+ * many devices, so it is done on a dedicated camera thread rather than
+ * in `start()`. Every operation touching the camera runs on that thread,
+ * in the order `start()` and `stop()` were called: a stop always
+ * releases the camera opened by the preceding start, and a start that is
+ * stopped before its camera could be opened does nothing. The preview is
+ * started once both the camera and the preview surface are ready,
+ * whichever comes first. Each start gets a camera thread of its own,
+ * that ends with the matching stop once the camera is released; it
+ * only opens the camera once the thread of the previous start is over.
+ *
+ * Apart from `HardwareCameraSource` and the preview surface, nothing
+ * here depends on the device: with a `SyntheticCameraSource` and no
+ * surface the whole capture loop runs on a plain JVM.
+ */
+public class CameraManager implements SurfaceHolder.Callback, CameraSource.FrameCallback {
 
+	public static interface Listener {
+
+		// called on the camera thread, possibly while frames of the
+		// previous size are still being processed.
 		public void onPreviewSizeFound(int w, int h);
-		public WindowManager getWindowManager();
+		// the buffer must be given back with `releaseFrame()`.
+		public void onPreviewFrame(byte[] data);
+		// the camera could not be opened. Called on the camera thread.
+		public void onCameraError();
+		// height/width ratio of the screen the preview is displayed on.
+		public float getScreenRatio();
 
 	}
 
@@ -27,128 +50,455 @@ public class CameraManager implements SurfaceHolder.Callback, Camera.PreviewCall
 
 	public static final String TAG = "CameraManager";
 
-	private static CameraManager instance = null;
+	// number of preview buffers circulating between the camera and the
+	// app: with more than one, the camera keeps capturing while a frame
+	// is being scanned.
+	public static final int DEFAULT_BUFFERS = 3;
+
+	// clockwise rotation of the preview on screen, in degrees: frames are
+	// delivered in landscape while the app is in portrait mode.
+	public static final int DISPLAY_ROTATION = 90;
+
 	private Listener listener;
-	private Camera cam;
+	private CameraSource.Factory factory = HardwareCameraSource.FACTORY;
+	// only replaced on the camera thread, read under `lock` elsewhere.
+	private CameraSource cam;
+	private final Object lock = new Object();
+	// the camera thread of the current start, if any.
+	private ScheduledExecutorService executor = null;
+	// the camera thread of the previous start, possibly still releasing.
+	private ScheduledExecutorService previous = null;
+	private Logger log = Logger.ANDROID;
+	// incremented by every `start()` and `stop()`.
+	private int generation = 0;
 	private SurfaceHolder preview;
-	private AutoFocusManager focus_manager;
-	private List<Size> banned;
+	// surface the preview is displayed on, once created. Camera thread only.
+	private SurfaceHolder display = null;
+	private boolean previewing = false;
+	private volatile AutoFocusManager focus_manager;
+	// `Clock.SYSTEM` time of the last `start()`, and delay until the
+	// first frame was delivered, or -1.
+	private volatile long start_time = 0;
+	private volatile long first_frame = -1;
+	// banned sizes, as (width, height) pairs.
+	private List<int[]> banned;
+	private PreviewSizeCache cache;
+	// true if the chosen preview size is known to work. Only changed on
+	// the camera thread.
+	private volatile boolean confirmed = false;
+	private volatile FrameRecorder recorder = null;
 
-	private int preview_width;
-	private int preview_height;
-	private byte[] buffer;
+	private volatile int preview_width;
+	private volatile int preview_height;
+	private FrameRing ring;
+	private int nb_buffers = DEFAULT_BUFFERS;
+	// buffers handed to the camera and not delivered back yet.
+	private byte[][] queued = new byte[0][];
+	private int nb_queued = 0;
 
 	private CameraManager() {
 		super();
-		banned = new ArrayList<Size>();
+		banned = new ArrayList<int[]>();
 		banned.clear();
+		ring = new FrameRing();
+	}
+
+	// initialized on first use, thread-safely, by the class loader.
+	private static class Holder {
+		static final CameraManager INSTANCE = new CameraManager();
 	}
 
 	public static CameraManager get() {
-		if (CameraManager.instance == null) {
-			synchronized(CameraManager.class) {
-				if (CameraManager.instance == null) {
-					CameraManager.instance = new CameraManager();
+		return Holder.INSTANCE;
+	}
+
+	/* opens the camera in the background and sends its frames to `l`.
+	 * The preview is displayed on `surface`; if `surface` is null (e.g.
+	 * when running headless on a `SyntheticCameraSource`) it starts as
+	 * soon as the camera is open. Failures are reported through
+	 * `Listener.onCameraError()`. Must be called on the UI thread.
+	 */
+	public void start(final Listener l, SurfaceView surface) {
+		final int gen;
+		final ScheduledExecutorService exec;
+		final ScheduledExecutorService before;
+		synchronized(this) {
+			// started twice: stop the first one.
+			if (executor != null) shutdown();
+			executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					return new Thread(r, TAG);
 				}
+			});
+			exec = executor;
+			before = previous;
+			previous = null;
+			gen = ++generation;
+			start_time = Clock.SYSTEM.now();
+			first_frame = -1;
+		}
+		final boolean headless = surface == null;
+		if (!headless) {
+			preview = surface.getHolder();
+			preview.setType(SurfaceHolder.SURFACE_TYPE_PUSH_BUFFERS);
+			preview.addCallback(this);
+			if (cache == null) {
+				cache = new PreviewSizeCache(surface.getContext(), 0);
 			}
 		}
-		return CameraManager.instance;
+		post(new Runnable() {
+			@Override
+			public void run() {
+				// the previous camera must be released first.
+				if (before != null && !awaitTermination(before)) return;
+				open(gen, l, headless, exec);
+			}
+		});
 	}
 
-	public boolean start(Listener l, SurfaceView surface) {
-		this.listener = l;
-		this.cam = getCameraInstance();
-		if (this.cam == null) {
-			Log.e(TAG, "ERROR: Could not access camera");
+	/* stops the preview and releases the camera in the background, once
+	 * every operation requested before is done, then ends the camera
+	 * thread. Must be called on the UI thread.
+	 */
+	public void stop() {
+		synchronized(this) {
+			if (executor == null) return;
+			++generation;
+			shutdown();
+		}
+		if (preview != null) {
+			preview.removeCallback(this);
+			preview = null;
+		}
+	}
+
+	/* waits for the camera thread of the last start to be over, i.e. for
+	 * the camera to be released after `stop()`. Returns false on timeout.
+	 */
+	public boolean awaitStopped(long timeout) throws InterruptedException {
+		ScheduledExecutorService e;
+		synchronized(this) {
+			e = executor != null ? executor : previous;
+		}
+		return e == null || e.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	// releases the camera, then ends the camera thread. Must hold the lock.
+	private void shutdown() {
+		executor.execute(uncaught(new Runnable() {
+			@Override
+			public void run() {
+				release();
+			}
+		}));
+		executor.shutdown();
+		previous = executor;
+		executor = null;
+	}
+
+	// waits for a former camera thread to be over.
+	private boolean awaitTermination(ScheduledExecutorService e) {
+		try {
+			while (!e.awaitTermination(1, TimeUnit.SECONDS)) {
+				if (Thread.currentThread().isInterrupted()) return false;
+			}
+			return true;
+		} catch (InterruptedException x) {
 			return false;
 		}
-		preview = surface.getHolder();
-		preview.setType(SurfaceHolder.SURFACE_TYPE_PUSH_BUFFERS);
-		preview.addCallback(this);
+	}
+
+	// delay between the last `start()` and the first frame, in ms, or -1.
+	public long getTimeToFirstFrame() {
+		return first_frame;
+	}
+
+	private synchronized boolean isCurrent(int gen) {
+		return gen == generation;
+	}
+
+	// runs `r` on the camera thread, unless stopped.
+	private synchronized void post(Runnable r) {
+		if (executor != null) executor.execute(uncaught(r));
+	}
+
+	/* the executor would keep what `r` throws to itself: it is handed to
+	 * the uncaught exception handler instead, as on a looper thread.
+	 */
+	private static Runnable uncaught(final Runnable r) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					r.run();
+				} catch (RuntimeException e) {
+					Thread t = Thread.currentThread();
+					t.getUncaughtExceptionHandler().uncaughtException(t, e);
+				}
+			}
+		};
+	}
+
+	// camera thread `exec`: opens and configures the camera.
+	private void open(int gen, Listener l, boolean headless, ScheduledExecutorService exec) {
+		// stopped before it could even start.
+		if (!isCurrent(gen)) return;
+		listener = l;
+		CameraSource c = factory.open();
+		if (c == null) {
+			log.error(TAG, "ERROR: Could not access camera", null);
+			l.onCameraError();
+			return;
+		}
+		synchronized(lock) {
+			cam = c;
+		}
 		findBestPreviewSize();
-		cam.setPreviewCallback(this);
+		if (confirmed) {
+			// no need to check the size again.
+			c.setFrameCallback(this, true);
+			requestNewFrame();
+		}
+		else {
+			c.setFrameCallback(this, false);
+		}
 		// adapt preview orientation or portrait mode
-		cam.setDisplayOrientation(90);
-		focus_manager = new AutoFocusManager(cam);
-		return true;
+		c.setDisplayOrientation(DISPLAY_ROTATION);
+		focus_manager = new AutoFocusManager(c, exec, log);
+		if (headless || display != null) {
+			startPreview();
+		}
 	}
 
-	public void stop() {
-		focus_manager.stop();
-		if (cam != null) {
-			cam.stopPreview();
-			cam.setPreviewCallback(null);
-			cam.cancelAutoFocus();
-			cam.release();
+	// camera thread: releases the camera, if open.
+	private void release() {
+		AutoFocusManager fm = focus_manager;
+		focus_manager = null;
+		if (fm != null) fm.stop();
+		CameraSource c;
+		synchronized(lock) {
+			c = cam;
 			cam = null;
 		}
+		if (c != null) {
+			c.stopPreview();
+			c.setFrameCallback(null, false);
+			c.cancelAutoFocus();
+			c.release();
+		}
+		display = null;
+		previewing = false;
+		// what was learnt about preview sizes, once per session.
+		if (cache != null) cache.save();
+		/* buffers held by the camera are gone with it. Those held by the
+		 * app come back through `releaseFrame()`, maybe later: the ring
+		 * is not reset, so that they are never handed out twice.
+		 */
+		synchronized(lock) {
+			for (int i = 0; i < nb_queued; ++i) {
+				ring.release(queued[i]);
+				queued[i] = null;
+			}
+			nb_queued = 0;
+		}
 	}
 
-	public void requestNewFrame() {
-		cam.addCallbackBuffer(buffer);
+	// feeds the autofocus policy with the sharpness of the latest frame,
+	// as measured by `SharpnessGate`.
+	public void reportSharpness(float score) {
+		AutoFocusManager fm = focus_manager;
+		if (fm != null) fm.onSharpness(score);
 	}
 
-	private static Camera getCameraInstance(){
-		Camera c = null;
-		try {
-			c = Camera.open(); // attempt to get a Camera instance
-		}
-		catch (Exception e){
-			// camera is unavailable, return null
+	// the scene in front of the camera changed: refocus soon.
+	public void reportSceneChange() {
+		AutoFocusManager fm = focus_manager;
+		if (fm != null) fm.onSceneChange();
+	}
+
+	/* records every frame delivered to the listener from now on, or stops
+	 * recording if `r` is null. Recordings can be played back with
+	 * `FrameReplayer`.
+	 */
+	public void setRecorder(FrameRecorder r) {
+		recorder = r;
+	}
+
+	// pool of preview buffers, e.g. to replay frames to the listener.
+	public FrameRing getFrameRing() {
+		return ring;
+	}
+
+	// where to log, `Logger.ANDROID` by default.
+	public void setLogger(Logger l) {
+		log = l == null ? Logger.NONE : l;
+	}
+
+	// camera to use from the next `start()` on: the device camera by default.
+	public void setSourceFactory(CameraSource.Factory f) {
+		factory = f == null ? HardwareCameraSource.FACTORY : f;
+	}
+
+	// must be called before `start()` to be taken into account.
+	public void setBufferCount(int n) {
+		nb_buffers = n < 1 ? 1 : n;
+	}
+
+	// hands every free buffer over to the camera.
+	public void requestNewFrame() {
+		synchronized(lock) {
+			if (cam == null) return;
+			if (queued.length < ring.capacity()) {
+				queued = new byte[ring.capacity()][];
+			}
+			byte[] b;
+			while (nb_queued < queued.length && (b = ring.acquire()) != null) {
+				queued[nb_queued++] = b;
+				cam.addCallbackBuffer(b);
+			}
 		}
-		return c;
 	}
 
-	// compute best preview size: highest possible
-	// with ratio within 10% of screen resolution
-	public void findBestPreviewSize() {
-		Parameters params  = cam.getParameters();
-		// get screen ratio:
-		Display display = listener.getWindowManager().getDefaultDisplay();
-		float ratio = (float)display.getHeight()/(float)display.getWidth();
-		// available preview sizes:
-		List<Size> prev_sizes = params.getSupportedPreviewSizes();
-		for (Size s : banned) {
-			prev_sizes.remove(s);
+	// the camera delivered `b`: the app holds it now.
+	private void delivered(byte[] b) {
+		synchronized(lock) {
+			for (int i = 0; i < nb_queued; ++i) {
+				if (queued[i] == b) {
+					queued[i] = queued[--nb_queued];
+					queued[nb_queued] = null;
+					return;
+				}
+			}
 		}
+	}
+
+	// gives a buffer received in `Listener.onPreviewFrame()` back to
+	// the camera, once the app is done with it.
+	public void releaseFrame(byte[] data) {
+		ring.release(data);
+		requestNewFrame();
+	}
+
+	/* selection logic of `findBestPreviewSize()`: among `sizes`, given as
+	 * consecutive (width, height) pairs, returns the index of the pair
+	 * to use for a screen of ratio `ratio`, or -1 if there is none.
+	 */
+	public static int selectPreviewSize(int[] sizes, float ratio) {
+		int best = -1;
 		int best_w = 0;
-		int best_h = 0;
-		for (Size s : prev_sizes) {
-			int w = s.width;
-			int h = s.height;
+		int n = sizes.length/2;
+		for (int i = 0; i < n; ++i) {
+			int w = sizes[2*i];
+			int h = sizes[2*i+1];
 			if (w > 1280 || h > 1280) continue;
 			float r = (float)w/(float)h;
 			if (((r-ratio)*(r-ratio))/(ratio*ratio) < 0.01 && w > best_w) {
+				best = i;
 				best_w = w;
-				best_h = h;
 			}
 		}
 		// nothing found with good ratio? take biggest.
 		// should rarely (never?) happen.
-		if (best_w == 0) {
-			for (Size s : prev_sizes) {
-				int w = s.width;
+		if (best < 0) {
+			for (int i = 0; i < n; ++i) {
+				int w = sizes[2*i];
 				if (w > best_w) {
+					best = i;
 					best_w = w;
-					best_h = s.height;
 				}
 			}
 		}
+		return best;
+	}
+
+	// compute best preview size: highest possible
+	// with ratio within 10% of screen resolution
+	public void findBestPreviewSize() {
+		// get screen ratio:
+		float ratio = listener.getScreenRatio();
+		// available preview sizes:
+		int[] sizes = cam.getSupportedPreviewSizes();
+		// restore what we learnt during previous runs, unless
+		// the device or the screen changed since.
+		if (cache != null) {
+			if (cache.validate(PreviewSizeCache.signature(sizes), ratio)) {
+				int[] b = cache.getBanned();
+				for (int i = 0; i+1 < b.length; i += 2) {
+					if (!isBanned(b[i], b[i+1])) banned.add(new int[] { b[i], b[i+1] });
+				}
+			}
+			else {
+				banned.clear();
+			}
+		}
+		int n = 0;
+		int[] candidates = new int[sizes.length];
+		for (int i = 0; i+1 < sizes.length; i += 2) {
+			if (isBanned(sizes[i], sizes[i+1])) continue;
+			candidates[n++] = sizes[i];
+			candidates[n++] = sizes[i+1];
+		}
+		int best_w = 0;
+		int best_h = 0;
+		confirmed = false;
+		// size known to work? use it right away.
+		if (cache != null && cache.hasSize() && contains(candidates, n, cache.getWidth(), cache.getHeight())) {
+			best_w = cache.getWidth();
+			best_h = cache.getHeight();
+			confirmed = true;
+		}
+		else {
+			int[] available = new int[n];
+			System.arraycopy(candidates, 0, available, 0, n);
+			int best = selectPreviewSize(available, ratio);
+			if (best >= 0) {
+				best_w = available[2*best];
+				best_h = available[2*best+1];
+			}
+		}
 		// set the values
 		preview_width = best_w;
 		preview_height = best_h;
-		params.setPreviewSize(preview_width, preview_height);
-		// we force the preview format to NV21
-		params.setPreviewFormat(ImageFormat.NV21);
-		cam.setParameters(params);
-		// pre-allocate buffer of size #pixels x 3/2
+		cam.setPreviewSize(preview_width, preview_height);
+		// pre-allocate buffers of size #pixels x 3/2
 		// as NV21 uses #pixels for grayscale and twice
-		// #pixels/4 for chroma.
-		buffer = new byte[preview_width*preview_height*3/2];
+		// #pixels/4 for chroma. Buffers are recycled if
+		// they are large enough already.
+		ring.resize(nb_buffers, preview_width*preview_height*3/2);
 		// notify Listener
 		listener.onPreviewSizeFound(preview_width, preview_height);
 	}
 
+	private boolean isBanned(int w, int h) {
+		for (int[] s : banned) {
+			if (s[0] == w && s[1] == h) return true;
+		}
+		return false;
+	}
+
+	private static boolean contains(int[] sizes, int n, int w, int h) {
+		for (int i = 0; i+1 < n; i += 2) {
+			if (sizes[i] == w && sizes[i+1] == h) return true;
+		}
+		return false;
+	}
+
+	// camera thread: starts the preview, once.
+	private void startPreview() {
+		if (previewing) return;
+		previewing = true;
+		if (display != null) {
+			try {
+				cam.setPreviewDisplay(display);
+			} catch (IOException e) {
+				log.error(TAG, "ERROR: Could not start preview", e);
+			}
+		}
+		cam.startPreview();
+		focus_manager.start();
+	}
+
 	//------------------------
 	// SurfaceHolder.Callback
 	//------------------------
@@ -158,14 +508,21 @@ public class CameraManager implements SurfaceHolder.Callback, Camera.PreviewCall
 	}
 
 	@Override
-	public void surfaceCreated(SurfaceHolder holder) {
-		try {
-			cam.setPreviewDisplay(holder);
-		} catch (IOException e) {
-			Log.e(TAG, "ERROR: Could not start preview");
+	public void surfaceCreated(final SurfaceHolder holder) {
+		final int gen;
+		synchronized(this) {
+			gen = generation;
 		}
-		cam.startPreview();
-		focus_manager.start();
+		// the camera may not be open yet: hand the surface over to the
+		// camera thread, that starts the preview once both are ready.
+		post(new Runnable() {
+			@Override
+			public void run() {
+				if (!isCurrent(gen)) return;
+				display = holder;
+				if (cam != null) startPreview();
+			}
+		});
 	}
 
 	@Override
@@ -182,14 +539,53 @@ public class CameraManager implements SurfaceHolder.Callback, Camera.PreviewCall
 	 * chooses another one if it's not.
 	 *******************************************************************/
 	@Override
-	public void onPreviewFrame(byte[] data, Camera camera) {
-		if (data.length != 3*preview_width*preview_height/2) {
-			Size s = cam.new Size(preview_width,preview_height);
-			banned.add(s);
+	public void onFrame(byte[] data) {
+		if (confirmed) {
+			if (first_frame < 0) {
+				first_frame = Clock.SYSTEM.now() - start_time;
+				log.info(TAG, "first frame "+first_frame+" ms after start");
+			}
+			delivered(data);
+			FrameRecorder r = recorder;
+			if (r != null) {
+				r.record(data, preview_width, preview_height, OrientationListener.get().getOrientation());
+			}
+			listener.onPreviewFrame(data);
+			return;
+		}
+		/* the check touches the camera, the ring and the banned sizes: it
+		 * runs on the camera thread, unless the camera was stopped or the
+		 * size changed in the meantime.
+		 */
+		final int gen;
+		synchronized(this) {
+			gen = generation;
+		}
+		final int length = data.length;
+		final int w = preview_width;
+		final int h = preview_height;
+		post(new Runnable() {
+			@Override
+			public void run() {
+				if (!isCurrent(gen) || cam == null || confirmed) return;
+				if (w != preview_width || h != preview_height) return;
+				checkPreviewSize(length);
+			}
+		});
+	}
+
+	// camera thread: bans the preview size or confirms it, from the
+	// `length` of a frame of that size.
+	private void checkPreviewSize(int length) {
+		if (length != 3*preview_width*preview_height/2) {
+			banned.add(new int[] { preview_width, preview_height });
+			if (cache != null) cache.ban(preview_width, preview_height);
 			findBestPreviewSize();
 		}
 		else {
-			cam.setPreviewCallbackWithBuffer(listener);
+			confirmed = true;
+			if (cache != null) cache.confirm(preview_width, preview_height);
+			cam.setFrameCallback(this, true);
 			requestNewFrame();
 		}
 	}
@@ -0,0 +1,47 @@
+package com.example.android;
+
+import java.io.IOException;
+
+import android.view.SurfaceHolder;
+
+/* What `CameraManager` needs from a camera. `HardwareCameraSource` is
+ * the device camera; `SyntheticCameraSource` stands in for it where
+ * there is none.
+ *
+ * As with `android.hardware.Camera`, in buffered mode a frame is only
+ * delivered into a buffer previously given with `addCallbackBuffer()`,
+ * and frames are dropped while no buffer is available.
+ */
+public interface CameraSource {
+
+	public static interface Factory {
+		// returns null if the camera is not available.
+		public CameraSource open();
+	}
+
+	public static interface FrameCallback {
+		public void onFrame(byte[] data);
+	}
+
+	public static interface FocusCallback {
+		public void onFocus(boolean success);
+	}
+
+	// supported NV21 preview sizes, as consecutive (width, height) pairs.
+	public int[] getSupportedPreviewSizes();
+	// selects the preview size, in NV21.
+	public void setPreviewSize(int w, int h);
+	public void setDisplayOrientation(int degrees);
+	public void setPreviewDisplay(SurfaceHolder holder) throws IOException;
+	/* sets the callback receiving the frames, null to stop receiving
+	 * them. If `buffered` is false, each frame gets a new buffer.
+	 */
+	public void setFrameCallback(FrameCallback cb, boolean buffered);
+	public void addCallbackBuffer(byte[] b);
+	public void startPreview();
+	public void stopPreview();
+	public void autoFocus(FocusCallback cb);
+	public void cancelAutoFocus();
+	public void release();
+
+}
@@ -0,0 +1,27 @@
+package com.example.android;
+
+/* Time source, in milliseconds. Policies take a clock rather than
+ * reading the system time so that they can be driven by a fake one
+ * off the device.
+ */
+public interface Clock {
+
+	public long now();
+
+	// monotonic time, for delays measured within a run.
+	public static final Clock SYSTEM = new Clock() {
+		@Override
+		public long now() {
+			return System.nanoTime()/1000000;
+		}
+	};
+
+	// wall-clock time, for dates that must survive a restart.
+	public static final Clock WALL = new Clock() {
+		@Override
+		public long now() {
+			return System.currentTimeMillis();
+		}
+	};
+
+}
@@ -0,0 +1,141 @@
+package com.example.android;
+
+/* Stretches the luma of dark or washed-out frames before they are
+ * scanned, e.g. in poorly lit places.
+ *
+ * A subsampled histogram of the region gives its mean luma and the
+ * levels below which CLIP of the pixels fall at each end. Frames that
+ * are bright and contrasted enough are left untouched. Otherwise these
+ * levels are mapped to 0 and 255 through a lookup table applied in
+ * place. Frames with a very narrow range (e.g. a blank table) are left
+ * as is too, as stretching them would only amplify noise. The histogram
+ * and the table are reused, so nothing is allocated per frame.
+ */
+public class ContrastStretcher {
+
+	public static final String TAG = "ContrastStretcher";
+
+	// frames darker than this mean luma are stretched...
+	public static final int DEFAULT_DARK_MEAN = 80;
+	// ... as well as those whose levels span less than this. Well lit
+	// codes often span little more than half of the range, and are
+	// decoded as they are.
+	public static final int DEFAULT_MIN_RANGE = 96;
+	// levels closer than this are not stretched.
+	public static final int MIN_SPAN = 16;
+	// fraction of the pixels clipped at each end, in 1/1000.
+	private static final int CLIP = 5;
+	private static final int STEP = 2;
+
+	private int dark_mean;
+	private int min_range;
+	private final int[] histogram = new int[256];
+	private final byte[] lut = new byte[256];
+	private int mean = 0;
+	private int low = 0;
+	private int high = 255;
+
+	private long applied = 0;
+	private long skipped = 0;
+
+	public ContrastStretcher() {
+		this(DEFAULT_DARK_MEAN, DEFAULT_MIN_RANGE);
+	}
+
+	public ContrastStretcher(int dark_mean, int min_range) {
+		super();
+		this.dark_mean = dark_mean;
+		this.min_range = min_range;
+	}
+
+	/* stretches in place the `w` x `h` luma rectangle at (`x`,`y`) of
+	 * `data`, whose rows are `stride` bytes apart, if needed. Returns
+	 * true if the frame was modified.
+	 */
+	public synchronized boolean apply(byte[] data, int x, int y, int w, int h, int stride) {
+		measure(data, x, y, w, h, stride);
+		if (mean >= dark_mean && high - low >= min_range || high - low < MIN_SPAN) {
+			++skipped;
+			return false;
+		}
+		buildLut(low, high, lut);
+		for (int j = 0; j < h; ++j) {
+			int p = (y + j)*stride + x;
+			int end = p + w;
+			for (; p < end; ++p) {
+				data[p] = lut[data[p] & 0xff];
+			}
+		}
+		++applied;
+		return true;
+	}
+
+	// fills the histogram and derives the mean and clipped levels.
+	private void measure(byte[] data, int x, int y, int w, int h, int stride) {
+		int[] hist = histogram;
+		for (int i = 0; i < 256; ++i) {
+			hist[i] = 0;
+		}
+		for (int j = y; j < y + h; j += STEP) {
+			int p = j*stride + x;
+			int end = p + w;
+			for (; p < end; p += STEP) {
+				++hist[data[p] & 0xff];
+			}
+		}
+		long sum = 0;
+		int n = 0;
+		for (int i = 0; i < 256; ++i) {
+			sum += (long)i*hist[i];
+			n += hist[i];
+		}
+		if (n == 0) {
+			mean = 0;
+			low = 0;
+			high = 0;
+			return;
+		}
+		mean = (int)(sum/n);
+		int clip = n*CLIP/1000;
+		int acc = 0;
+		low = 0;
+		while (low < 255 && acc + hist[low] <= clip) {
+			acc += hist[low++];
+		}
+		acc = 0;
+		high = 255;
+		while (high > low && acc + hist[high] <= clip) {
+			acc += hist[high--];
+		}
+	}
+
+	/* fills `lut` so that it maps `low` to 0 and `high` to 255, linearly,
+	 * clamping outside of them.
+	 */
+	public static void buildLut(int low, int high, byte[] lut) {
+		int span = Math.max(1, high - low);
+		for (int i = 0; i < 256; ++i) {
+			int v = (i - low)*255/span;
+			lut[i] = (byte)(v < 0 ? 0 : v > 255 ? 255 : v);
+		}
+	}
+
+	// mean luma of the last measured region.
+	public synchronized int getLastMean() {
+		return mean;
+	}
+
+	public synchronized long getApplied() {
+		return applied;
+	}
+
+	public synchronized long getSkipped() {
+		return skipped;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return TAG+": "+applied+" stretched, "+skipped+" untouched";
+	}
+
+}
@@ -0,0 +1,179 @@
+package com.example.android;
+
+/* Decides when to trigger autofocus from the outcome of the previous
+ * focus and from the sharpness of the frames that followed it.
+ *
+ * - right after focusing, the sharpness of the first frame is taken as
+ *   the in-focus reference,
+ * - while frames stay sharp, each due refocus is skipped and the next
+ *   one is pushed back (up to MAX_DELAY),
+ * - a few consecutive frames much blurrier than the reference, or an
+ *   explicit scene change, trigger a refocus as soon as MIN_DELAY has
+ *   elapsed since the previous one,
+ * - a failed focus is retried after MIN_DELAY.
+ *
+ * `tick()` must be called periodically. The lens and the clock are
+ * abstracted so that the policy can run without a camera.
+ */
+public class FocusController {
+
+	public static final String TAG = "FocusController";
+
+	public static interface Lens {
+		// must eventually call `onFocus()`.
+		public void autoFocus();
+	}
+
+	// shortest time between two focus requests.
+	public static final long MIN_DELAY = 500;
+	// delay before the first re-check after a successful focus.
+	public static final long BASE_DELAY = 1500;
+	// longest time without refocusing while frames stay sharp.
+	public static final long MAX_DELAY = 12000;
+	// a focus that does not complete within this delay is considered failed.
+	public static final long FOCUS_TIMEOUT = 3000;
+
+	// frames below this fraction of the reference are considered blurry.
+	private static final float BLUR_RATIO = 0.5f;
+	// consecutive blurry frames that mean the scene moved.
+	private static final int BLUR_FRAMES = 3;
+	// weight of a sharp frame in the reference.
+	private static final float ALPHA = 0.1f;
+
+	private Lens lens;
+	private Clock clock;
+
+	private boolean running = false;
+	private boolean focusing = false;
+	private long focus_start = 0;
+	private long last_focus = 0;
+	// time from which `delay` is counted.
+	private long since = 0;
+	private long delay = 0;
+
+	private boolean has_reference = false;
+	private float reference = 0;
+	private int blurry = 0;
+	private boolean steady = false;
+	private boolean scene_changed = false;
+	// the last focus failed: retry it whatever the frames look like.
+	private boolean retry = false;
+
+	private long requests = 0;
+	private long skipped = 0;
+
+	public FocusController(Lens lens, Clock clock) {
+		super();
+		this.lens = lens;
+		this.clock = clock;
+	}
+
+	// focuses right away and starts monitoring.
+	public void start() {
+		synchronized(this) {
+			running = true;
+			focusing = false;
+			scene_changed = true;
+			retry = false;
+			last_focus = clock.now() - MIN_DELAY;
+		}
+		tick();
+	}
+
+	public synchronized void stop() {
+		running = false;
+		focusing = false;
+	}
+
+	/* checks whether a focus is due, and requests it. Returns true if
+	 * a focus has been requested.
+	 */
+	public boolean tick() {
+		synchronized(this) {
+			if (!running) return false;
+			long now = clock.now();
+			if (focusing) {
+				if (now - focus_start < FOCUS_TIMEOUT) return false;
+				// lost callback: consider it failed.
+				focusDone(false, now);
+			}
+			if (now - last_focus < MIN_DELAY) return false;
+			if (!scene_changed) {
+				if (now - since < delay) return false;
+				if (steady && !retry) {
+					// still sharp: no need to refocus yet.
+					++skipped;
+					delay = Math.min(2*delay, MAX_DELAY);
+					since = now;
+					return false;
+				}
+			}
+			focusing = true;
+			focus_start = now;
+			scene_changed = false;
+			retry = false;
+			++requests;
+		}
+		lens.autoFocus();
+		return true;
+	}
+
+	// to be called when the lens is done focusing.
+	public synchronized void onFocus(boolean success) {
+		if (!focusing) return;
+		focusDone(success, clock.now());
+	}
+
+	/* feeds the sharpness score of a frame, as computed by
+	 * `SharpnessGate`. Frames captured while focusing, or before a
+	 * failed focus is retried, are ignored.
+	 */
+	public synchronized void onSharpness(float score) {
+		if (!running || focusing || retry) return;
+		if (!has_reference) {
+			reference = score;
+			has_reference = true;
+			steady = true;
+			return;
+		}
+		steady = score >= BLUR_RATIO*reference;
+		if (!steady) {
+			if (++blurry >= BLUR_FRAMES) {
+				scene_changed = true;
+			}
+		}
+		else {
+			blurry = 0;
+			reference += ALPHA*(score - reference);
+		}
+	}
+
+	// signals that the camera is now looking at something else.
+	public synchronized void onSceneChange() {
+		if (running && !focusing) {
+			scene_changed = true;
+		}
+	}
+
+	public synchronized long getRequests() {
+		return requests;
+	}
+
+	// due refocuses skipped because frames stayed sharp.
+	public synchronized long getSkipped() {
+		return skipped;
+	}
+
+	// must hold the lock.
+	private void focusDone(boolean success, long now) {
+		focusing = false;
+		last_focus = now;
+		since = now;
+		delay = success ? BASE_DELAY : MIN_DELAY;
+		retry = !success;
+		has_reference = false;
+		blurry = 0;
+		steady = false;
+	}
+
+}
@@ -0,0 +1,207 @@
+package com.example.android;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import android.util.Log;
+
+/* Appends raw preview frames to a memory-mapped file, to be played back
+ * later by `FrameReplayer`.
+ *
+ * File format (big-endian):
+ *
+ *   header: int magic ("MSFR"), int version, int frame count, int 0
+ *   frames: int width, int height, int orientation,
+ *           long timestamp (ns since the first frame),
+ *           int length, byte[length] NV21 data
+ *
+ * The file is mapped in chunks of CHUNK bytes and written by a thread
+ * of its own: `record()` only copies the frame into one of QUEUE spare
+ * buffers, so that the camera thread never waits for the disk, nor
+ * allocates once the buffers are sized. Frames that find no spare buffer
+ * are dropped. A recording that is not closed has no frame count. The file is truncated to its
+ * actual length, and the frame count is written, on `close()`.
+ */
+public class FrameRecorder {
+
+	public static final String TAG = "FrameRecorder";
+
+	public static final int MAGIC = 0x4d534652; /* "MSFR" */
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+	public static final int FRAME_HEADER_SIZE = 24;
+
+	// frames copied but not yet written, at most.
+	public static final int QUEUE = 4;
+
+	private static final long CHUNK = 16 << 20;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private MappedByteBuffer map = null;
+	// file offset of the next frame.
+	private long position = HEADER_SIZE;
+	private int frames = 0;
+	private long dropped = 0;
+	private long first = -1;
+	private boolean closing = false;
+	private boolean failed = false;
+	private Thread writer;
+
+	// frames waiting to be written, as a circular queue.
+	private final Frame[] queue = new Frame[QUEUE];
+	private int head = 0;
+	private int nb_queued = 0;
+	// buffers free to copy frames into.
+	private final Frame[] spare = new Frame[QUEUE];
+	private int nb_spare = QUEUE;
+
+	private static class Frame {
+		byte[] data;
+		int width;
+		int height;
+		int orientation;
+		long time;
+		int length;
+	}
+
+	public FrameRecorder(File f) throws IOException {
+		super();
+		for (int i = 0; i < QUEUE; ++i) {
+			spare[i] = new Frame();
+		}
+		file = new RandomAccessFile(f, "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putInt(0).putInt(0);
+		header.flip();
+		channel.write(header, 0);
+		writer = new Thread(TAG) {
+			@Override
+			public void run() {
+				write();
+			}
+		};
+		writer.start();
+	}
+
+	/* queues a `w` x `h` NV21 frame for writing. Returns false if it was
+	 * dropped, i.e. if the writer is behind or the recorder is closed.
+	 */
+	public synchronized boolean record(byte[] data, int w, int h, int orientation) {
+		if (closing || failed) return false;
+		long now = System.nanoTime();
+		if (first < 0) first = now;
+		int len = w*h*3/2;
+		if (nb_spare == 0) {
+			++dropped;
+			return false;
+		}
+		Frame f = spare[--nb_spare];
+		spare[nb_spare] = null;
+		if (f.data == null || f.data.length < len) f.data = new byte[len];
+		System.arraycopy(data, 0, f.data, 0, len);
+		f.width = w;
+		f.height = h;
+		f.orientation = orientation;
+		f.time = now - first;
+		f.length = len;
+		queue[(head + nb_queued++) % QUEUE] = f;
+		notifyAll();
+		return true;
+	}
+
+	// frames written so far.
+	public synchronized int getFrameCount() {
+		return frames;
+	}
+
+	// frames dropped because the writer was behind.
+	public synchronized long getDropped() {
+		return dropped;
+	}
+
+	/* writes the frames still queued and closes the file. */
+	public void close() {
+		synchronized(this) {
+			if (closing) return;
+			closing = true;
+			notifyAll();
+		}
+		boolean interrupted = false;
+		while (writer.isAlive()) {
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+		try {
+			map = null;
+			channel.truncate(position);
+			ByteBuffer count = ByteBuffer.allocate(4);
+			count.putInt(frames);
+			count.flip();
+			channel.write(count, 8);
+			channel.close();
+			file.close();
+		} catch (IOException e) {
+			Log.e(TAG, "ERROR: Could not close recording", e);
+		}
+	}
+
+	// writer thread loop.
+	private void write() {
+		while (true) {
+			Frame f;
+			synchronized(this) {
+				while (nb_queued == 0 && !closing) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						// keep on until closed.
+					}
+				}
+				if (nb_queued == 0) return;
+				f = queue[head];
+				queue[head] = null;
+				head = (head + 1) % QUEUE;
+				--nb_queued;
+			}
+			try {
+				reserve(FRAME_HEADER_SIZE + f.length);
+				map.putInt(f.width);
+				map.putInt(f.height);
+				map.putInt(f.orientation);
+				map.putLong(f.time);
+				map.putInt(f.length);
+				map.put(f.data, 0, f.length);
+			} catch (IOException e) {
+				Log.e(TAG, "ERROR: Could not record frame", e);
+				synchronized(this) {
+					failed = true;
+					nb_queued = 0;
+				}
+				return;
+			}
+			synchronized(this) {
+				position += FRAME_HEADER_SIZE + f.length;
+				++frames;
+				spare[nb_spare++] = f;
+			}
+		}
+	}
+
+	// makes sure that the mapping can hold `len` more bytes.
+	private void reserve(int len) throws IOException {
+		if (map != null && map.remaining() >= len) return;
+		map = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(CHUNK, len));
+	}
+
+}
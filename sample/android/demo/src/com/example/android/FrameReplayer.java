@@ -0,0 +1,153 @@
+package com.example.android;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/* Reads back frames recorded by `FrameRecorder`, and pushes them
+ * through a `CameraManager.Listener` as the camera would, either at
+ * their original pace or as fast as the listener releases buffers.
+ * Apart from the listener, nothing here depends on the device.
+ */
+public class FrameReplayer {
+
+	public static final String TAG = "FrameReplayer";
+
+	// how long to wait for a free buffer when replaying at full speed.
+	private static final long BUFFER_TIMEOUT = 5000;
+
+	private MappedByteBuffer map;
+	private int frames;
+	// frames read since the last rewind.
+	private int index = 0;
+
+	// current frame
+	private int width = 0;
+	private int height = 0;
+	private int orientation = 0;
+	private long timestamp = 0;
+	private int length = 0;
+	private int offset = 0;
+
+	public FrameReplayer(File f) throws IOException {
+		super();
+		RandomAccessFile file = new RandomAccessFile(f, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			// the mapping stays valid once the file is closed.
+			file.close();
+		}
+		if (map.limit() < FrameRecorder.HEADER_SIZE ||
+				map.getInt(0) != FrameRecorder.MAGIC ||
+				map.getInt(4) != FrameRecorder.VERSION) {
+			throw new IOException("not a frame recording: "+f);
+		}
+		frames = map.getInt(8);
+		rewind();
+	}
+
+	public int getFrameCount() {
+		return frames;
+	}
+
+	public void rewind() {
+		map.position(FrameRecorder.HEADER_SIZE);
+		index = 0;
+	}
+
+	/* moves to the next frame. Returns false at the end of the
+	 * recording. A recording that was not closed has no frame count, and
+	 * ends with the zeroes of its last chunk: an empty frame ends it too.
+	 */
+	public boolean next() {
+		if (frames > 0 && index >= frames) return false;
+		if (map.remaining() < FrameRecorder.FRAME_HEADER_SIZE) return false;
+		width = map.getInt();
+		height = map.getInt();
+		orientation = map.getInt();
+		timestamp = map.getLong();
+		length = map.getInt();
+		offset = map.position();
+		if (width <= 0 || height <= 0 || length <= 0 || length > map.remaining()) return false;
+		map.position(offset + length);
+		++index;
+		return true;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getOrientation() {
+		return orientation;
+	}
+
+	// ns since the first frame.
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	// copies the NV21 data of the current frame into `dst`.
+	public void read(byte[] dst) {
+		int p = map.position();
+		map.position(offset);
+		map.get(dst, 0, length);
+		map.position(p);
+	}
+
+	/* plays the whole recording to `l`, taking buffers from `pool` that
+	 * the listener must give back once done, as it does with the camera.
+	 * At original pace, frames that find no free buffer are dropped, like
+	 * the camera does; at full speed, the replayer waits for a buffer.
+	 * When the frame size changes, it waits for every buffer to be given
+	 * back before resizing the pool. Returns the number of dropped frames.
+	 */
+	public int replay(CameraManager.Listener l, FrameRing pool, boolean realtime) throws InterruptedException {
+		int dropped = 0;
+		int w = 0;
+		int h = 0;
+		long start = System.nanoTime();
+		rewind();
+		while (next()) {
+			if (width != w || height != h) {
+				w = width;
+				h = height;
+				// resizing frees every buffer: wait for the listener to give them back.
+				if (!pool.awaitFree(BUFFER_TIMEOUT)) {
+					throw new IllegalStateException("buffers still in use after "+BUFFER_TIMEOUT+" ms");
+				}
+				pool.resize(Math.max(pool.capacity(), CameraManager.DEFAULT_BUFFERS), length);
+				l.onPreviewSizeFound(w, h);
+			}
+			byte[] b;
+			if (realtime) {
+				long wait = (start + timestamp - System.nanoTime())/1000000;
+				if (wait > 0) Thread.sleep(wait);
+				b = pool.acquire();
+			}
+			else {
+				b = pool.acquire(BUFFER_TIMEOUT);
+			}
+			if (b == null) {
+				++dropped;
+				continue;
+			}
+			read(b);
+			l.onPreviewFrame(b);
+		}
+		return dropped;
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.example.android;
+
+/* Fixed pool of pre-allocated NV21 preview buffers.
+ *
+ * Each buffer is owned either by the ring (free) or by whoever acquired
+ * it (the camera while it fills it, then the app while it scans it).
+ * Buffers only travel between the ring and their owner, so once the
+ * ring is sized no allocation happens in steady state.
+ */
+public class FrameRing {
+
+	public static final String TAG = "FrameRing";
+
+	private byte[][] buffers = new byte[0][];
+	private byte[][] free = new byte[0][];
+	private int nb_free = 0;
+	private int frame_size = 0;
+	private int buffer_size = 0;
+
+	public FrameRing() {
+		super();
+	}
+
+	/* makes the ring hold `count` buffers of at least `size` bytes.
+	 * Existing buffers are recycled whenever they are large enough and
+	 * all free, so renegotiating the preview size down (e.g. when a size
+	 * gets banned) does not allocate. Buffers still in use are left to
+	 * their owner: they no longer belong to the ring. Every buffer is
+	 * free when this returns.
+	 */
+	public synchronized void resize(int count, int size) {
+		if (count != buffers.length || size > buffer_size || nb_free < buffers.length) {
+			buffers = new byte[count][];
+			free = new byte[count][];
+			for (int i = 0; i < count; ++i) {
+				buffers[i] = new byte[size];
+			}
+			buffer_size = size;
+		}
+		frame_size = size;
+		reset();
+	}
+
+	/* marks every buffer as free. */
+	public synchronized void reset() {
+		for (int i = 0; i < buffers.length; ++i) {
+			free[i] = buffers[i];
+		}
+		nb_free = buffers.length;
+		notifyAll();
+	}
+
+	/* returns a free buffer, or null if they are all in use. */
+	public synchronized byte[] acquire() {
+		if (nb_free == 0) return null;
+		byte[] b = free[--nb_free];
+		free[nb_free] = null;
+		return b;
+	}
+
+	/* same as `acquire()`, but waits up to `timeout` ms for a buffer
+	 * to be released if none is free.
+	 */
+	public synchronized byte[] acquire(long timeout) throws InterruptedException {
+		long end = System.nanoTime()/1000000 + timeout;
+		long left = timeout;
+		while (nb_free == 0 && left > 0) {
+			wait(left);
+			left = end - System.nanoTime()/1000000;
+		}
+		return acquire();
+	}
+
+	/* waits up to `timeout` ms for every buffer to be released, e.g.
+	 * before resizing a ring whose buffers may still be in use. Returns
+	 * false if some are still out.
+	 */
+	public synchronized boolean awaitFree(long timeout) throws InterruptedException {
+		long end = System.nanoTime()/1000000 + timeout;
+		long left = timeout;
+		while (nb_free < buffers.length && left > 0) {
+			wait(left);
+			left = end - System.nanoTime()/1000000;
+		}
+		return nb_free == buffers.length;
+	}
+
+	/* gives a buffer back to the ring. Returns false if the buffer
+	 * does not belong to the ring or is already free.
+	 */
+	public synchronized boolean release(byte[] b) {
+		if (b == null || !owns(b)) return false;
+		for (int i = 0; i < nb_free; ++i) {
+			if (free[i] == b) return false;
+		}
+		free[nb_free++] = b;
+		notifyAll();
+		return true;
+	}
+
+	public synchronized boolean owns(byte[] b) {
+		for (int i = 0; i < buffers.length; ++i) {
+			if (buffers[i] == b) return true;
+		}
+		return false;
+	}
+
+	public synchronized int available() {
+		return nb_free;
+	}
+
+	public synchronized int capacity() {
+		return buffers.length;
+	}
+
+	public synchronized int frameSize() {
+		return frame_size;
+	}
+
+	public synchronized int bufferSize() {
+		return buffer_size;
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.example.android;
+
+import java.io.IOException;
+import java.util.List;
+
+import android.graphics.ImageFormat;
+import android.hardware.Camera;
+import android.hardware.Camera.Parameters;
+import android.hardware.Camera.Size;
+import android.view.SurfaceHolder;
+
+/* `CameraSource` backed by the device camera. */
+public class HardwareCameraSource implements CameraSource, Camera.PreviewCallback, Camera.AutoFocusCallback {
+
+	public static final String TAG = "HardwareCameraSource";
+
+	public static final CameraSource.Factory FACTORY = new CameraSource.Factory() {
+		@Override
+		public CameraSource open() {
+			Camera c = null;
+			try {
+				c = Camera.open(); // attempt to get a Camera instance
+			}
+			catch (Exception e){
+				// camera is unavailable, return null
+			}
+			return c == null ? null : new HardwareCameraSource(c);
+		}
+	};
+
+	private Camera cam;
+	private FrameCallback frame_callback = null;
+	private FocusCallback focus_callback = null;
+
+	public HardwareCameraSource(Camera cam) {
+		super();
+		this.cam = cam;
+	}
+
+	@Override
+	public int[] getSupportedPreviewSizes() {
+		List<Size> l = cam.getParameters().getSupportedPreviewSizes();
+		int[] sizes = new int[2*l.size()];
+		for (int i = 0; i < l.size(); ++i) {
+			sizes[2*i] = l.get(i).width;
+			sizes[2*i+1] = l.get(i).height;
+		}
+		return sizes;
+	}
+
+	@Override
+	public void setPreviewSize(int w, int h) {
+		Parameters params = cam.getParameters();
+		params.setPreviewSize(w, h);
+		// we force the preview format to NV21
+		params.setPreviewFormat(ImageFormat.NV21);
+		cam.setParameters(params);
+	}
+
+	@Override
+	public void setDisplayOrientation(int degrees) {
+		cam.setDisplayOrientation(degrees);
+	}
+
+	@Override
+	public void setPreviewDisplay(SurfaceHolder holder) throws IOException {
+		cam.setPreviewDisplay(holder);
+	}
+
+	@Override
+	public void setFrameCallback(FrameCallback cb, boolean buffered) {
+		frame_callback = cb;
+		if (cb == null) {
+			cam.setPreviewCallback(null);
+		}
+		else if (buffered) {
+			cam.setPreviewCallbackWithBuffer(this);
+		}
+		else {
+			cam.setPreviewCallback(this);
+		}
+	}
+
+	@Override
+	public void addCallbackBuffer(byte[] b) {
+		cam.addCallbackBuffer(b);
+	}
+
+	@Override
+	public void startPreview() {
+		cam.startPreview();
+	}
+
+	@Override
+	public void stopPreview() {
+		cam.stopPreview();
+	}
+
+	@Override
+	public void autoFocus(FocusCallback cb) {
+		focus_callback = cb;
+		cam.autoFocus(this);
+	}
+
+	@Override
+	public void cancelAutoFocus() {
+		cam.cancelAutoFocus();
+	}
+
+	@Override
+	public void release() {
+		cam.release();
+	}
+
+	//------------------------
+	// Camera.PreviewCallback
+	//------------------------
+	@Override
+	public void onPreviewFrame(byte[] data, Camera camera) {
+		FrameCallback cb = frame_callback;
+		if (cb != null) cb.onFrame(data);
+	}
+
+	//--------------------------
+	// Camera.AutoFocusCallback
+	//--------------------------
+	@Override
+	public void onAutoFocus(boolean success, Camera camera) {
+		FocusCallback cb = focus_callback;
+		if (cb != null) cb.onFocus(success);
+	}
+
+}
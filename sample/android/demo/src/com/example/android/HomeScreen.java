@@ -1,22 +1,34 @@
 package com.example.android;
 
+import java.io.File;
+import java.util.Random;
+
 import com.moodstocks.android.*;
 
 import android.app.Activity;
 import android.app.AlertDialog;
+import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
 import android.os.Bundle;
+import android.os.Handler;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 
-public class HomeScreen extends Activity implements View.OnClickListener, Scanner.SyncListener {
+public class HomeScreen extends Activity implements View.OnClickListener, Scanner.SyncListener, ScannerLoader.Listener {
 
 	public static final String TAG = "HomeScreen";
 	private boolean compatible = false;
 	private Scanner scanner = null;
+	// opens the scanner off the UI thread.
+	private ScannerLoader loader = null;
+	// `Clock.SYSTEM` time at which the activity was created.
+	private long create_time = 0;
 	
 	/* SYNC POLICY: this illustrates our recommended best practices concerning
 	 * the synchronization process. There are 3 cases to distinguish:
@@ -38,22 +50,25 @@ public class HomeScreen extends Activity implements View.OnClickListener, Scanne
 	 *		 popups, to prevent the user from trying to use the scanner as the
 	 *		 offline recognition will not be able to work.
 	 *
-	 * 2 - The app has been killed and is re-launched, which in most cases 
-	 * 		 implies that the user has not used the app for quite a long time:
-	 * 		 we perform a seamless sync.
+	 * 2 - The app is launched or comes back to the foreground: to avoid
+	 * 		 useless synchronizations, we perform a seamless sync only if the
+	 * 		 previous one occurred more than about one day ago. The date of
+	 * 		 the last sync is stored on disk, so this holds across restarts,
+	 * 		 and a random jitter is added so that many devices launching the
+	 * 		 app at the same time do not all sync together.
 	 * 
-	 * 3 - The app was still running in the background and comes back to the
-	 * 		 the foreground, which in most cases implies that the user has run
-	 * 		 the app recently: to avoid useless synchronizations, we perform a 
-	 * 		 seamless sync only if the previous one occurred more than one day 
-	 * 		 ago.
+	 * 3 - The previous sync failed: we retry seamlessly after an
+	 * 		 exponentially growing delay (see SyncScheduler).
 	 */
 	
 	/* sync related variables */
 	private Splash splash = null;
-	private long last_sync = 0;
+	// progress is reported per item: only refresh the splash once per frame.
+	private ProgressThrottle progress = null;
+	private SyncScheduler sync_scheduler = null;
 	private boolean cold_start = true;
-	private static final long DAY = 86400000; /* duration of a day in ms */
+	// `Clock.SYSTEM` time at which the running sync started.
+	private long sync_start = 0;
 
 	@Override
 	public void onCreate(Bundle savedInstanceState) {
@@ -66,45 +81,16 @@ public class HomeScreen extends Activity implements View.OnClickListener, Scanne
 		 */
 		compatible = Scanner.isCompatible();
 		if (compatible) {
+			create_time = Clock.SYSTEM.now();
 			setContentView(R.layout.home);
+			// the scanner cannot be used until it is open.
+			findViewById(R.id.scan_button).setEnabled(false);
 			findViewById(R.id.scan_button).setOnClickListener(this);
 			splash = (Splash) findViewById(R.id.splash);
-			try {
-				this.scanner = Scanner.get();
-				/* Open the scanner, necessary to perform any operation using it.
-				 * This step also checks at runtime that the device is compatible.
-				 * If the device is not compatible, it will throw a RuntimeException
-				 * and crash the app.
-				 */
-				scanner.open(this, "ms.db");
-				/* Cold start detection */
-				if (scanner.count() != 0)
-					cold_start = false;
-			} catch (MoodstocksError e) {
-				/* an error occurred while opening the scanner */
-				if (e.getErrorCode() == MoodstocksError.Code.CREDMISMATCH) {
-					// == DO NOT USE IN PRODUCTION: THIS IS A HELP MESSAGE FOR DEVELOPERS
-					String errmsg = "there is a problem with your key/secret pair: "+
-							"the current pair does NOT match with the one recorded within the on-disk datastore. "+
-							"This could happen if:\n"+
-							" * you have first build & run the app without replacing the default"+
-							" \"ApIkEy\" and \"ApIsEcReT\" pair, and later on replaced with your real key/secret,\n"+
-							" * or, you have first made a typo on the key/secret pair, build & run the"+
-							" app, and later on fixed the typo and re-deployed.\n"+
-							"\n"+
-							"To solve your problem:\n"+
-							" 1) uninstall the app from your device,\n"+
-							" 2) make sure to properly configure your key/secret pair within Scanner.java\n"+
-							" 3) re-build & run\n";
-					MoodstocksError err = new MoodstocksError(errmsg, MoodstocksError.Code.CREDMISMATCH);
-					err.log();
-					finish();
-					// == DO NOT USE IN PRODUCTION: THIS WAS A HELP MESSAGE FOR DEVELOPERS
-				}
-				else {
-					e.log();
-				}
-			}
+			progress = new ProgressThrottle(new Handler(), splash, Clock.SYSTEM);
+			Telemetry.get().start(new File(getFilesDir(), "telemetry.bin"));
+			loader = new ScannerLoader(new Handler(), Clock.SYSTEM);
+			loader.open(this, "ms.db", this);
 		}
 		else {
 			/* device is *not* compatible. In this demo application, we chose
@@ -127,20 +113,100 @@ public class HomeScreen extends Activity implements View.OnClickListener, Scanne
 	@Override
 	public void onResume() {
 		super.onResume();
-		if (System.currentTimeMillis() - last_sync > DAY)
-			scanner.sync(this);
+		sync();
+	}
+
+	private void sync() {
+		if (sync_scheduler == null) return;
+		// the scanner cannot work until a first sync completes.
+		if (cold_start)
+			sync_scheduler.syncNow(this);
+		else
+			sync_scheduler.syncIfDue(this);
 	}
 
 	@Override
 	public void onDestroy() {
 		super.onDestroy();
 		if (compatible) {
-			try {
-				/* you must close the scanner before exiting */
-				scanner.close();
-			} catch (MoodstocksError e) {
-				e.log();
+			// closes the scanner, now or once it is open.
+			loader.close();
+		}
+	}
+
+	//------------------------
+	// ScannerLoader.Listener
+	//------------------------
+
+	@Override
+	public void onScannerReady(Scanner s, int count) {
+		this.scanner = s;
+		sync_scheduler = new SyncScheduler(new SyncScheduler.Source() {
+			@Override
+			public boolean isSyncing() {
+				return scanner.isSyncing();
+			}
+			@Override
+			public boolean isConnected() {
+				ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+				NetworkInfo info = cm == null ? null : cm.getActiveNetworkInfo();
+				return info != null && info.isConnected();
 			}
+			@Override
+			public void sync(Scanner.SyncListener l) {
+				scanner.sync(l);
+			}
+		}, getSharedPreferences("sync", MODE_PRIVATE), Clock.WALL, new Random());
+		/* Cold start detection */
+		if (count != 0)
+			cold_start = false;
+		findViewById(R.id.scan_button).setEnabled(true);
+		Log.i(TAG, "scanner ready "+(Clock.SYSTEM.now() - create_time)+" ms after launch (open: "+
+				loader.getOpenTime()+" ms, warm-up: "+loader.getWarmupTime()+" ms)");
+		// `onResume()` ran before the scanner was ready.
+		sync();
+	}
+
+	@Override
+	public void onScannerFailed(MoodstocksError e) {
+		/* an error occurred while opening the scanner */
+		if (e.getErrorCode() == MoodstocksError.Code.CREDMISMATCH) {
+			// == DO NOT USE IN PRODUCTION: THIS IS A HELP MESSAGE FOR DEVELOPERS
+			String errmsg = "there is a problem with your key/secret pair: "+
+					"the current pair does NOT match with the one recorded within the on-disk datastore. "+
+					"This could happen if:\n"+
+					" * you have first build & run the app without replacing the default"+
+					" \"ApIkEy\" and \"ApIsEcReT\" pair, and later on replaced with your real key/secret,\n"+
+					" * or, you have first made a typo on the key/secret pair, build & run the"+
+					" app, and later on fixed the typo and re-deployed.\n"+
+					"\n"+
+					"To solve your problem:\n"+
+					" 1) uninstall the app from your device,\n"+
+					" 2) make sure to properly configure your key/secret pair within Scanner.java\n"+
+					" 3) re-build & run\n";
+			MoodstocksError err = new MoodstocksError(errmsg, MoodstocksError.Code.CREDMISMATCH);
+			err.log();
+			finish();
+			// == DO NOT USE IN PRODUCTION: THIS WAS A HELP MESSAGE FOR DEVELOPERS
+		}
+		else {
+			e.log();
+			// the scan button stays disabled until the scanner opens.
+			AlertDialog.Builder builder = new AlertDialog.Builder(this);
+			builder.setCancelable(false);
+			builder.setTitle("Scanner unavailable");
+			builder.setMessage("The scanner could not be opened (error "+e.getErrorCode()+").");
+			builder.setPositiveButton("Retry", new DialogInterface.OnClickListener() {
+				public void onClick(DialogInterface dialog, int id) {
+					loader.open(HomeScreen.this, "ms.db", HomeScreen.this);
+				}
+			});
+			builder.setNegativeButton("Quit", new DialogInterface.OnClickListener() {
+				public void onClick(DialogInterface dialog, int id) {
+					finish();
+				}
+			});
+			builder.show();
 		}
 	}
 
@@ -158,14 +224,16 @@ public class HomeScreen extends Activity implements View.OnClickListener, Scanne
 
 	@Override
 	public void onSyncStart() {
+		sync_start = Clock.SYSTEM.now();
 		if (cold_start)
 			splash.show(true);
 	}
 
 	@Override
 	public void onSyncComplete() {
-		last_sync = System.currentTimeMillis();
+		Telemetry.get().sync(Clock.SYSTEM.now() - sync_start, MoodstocksError.Code.SUCCESS);
 		if (cold_start) {
+			progress.cancel();
 			splash.show(false);
 			cold_start = false;
 		}
@@ -174,7 +242,9 @@ public class HomeScreen extends Activity implements View.OnClickListener, Scanne
 	@Override
 	public void onSyncFailed(MoodstocksError e) {
 		e.log();
+		Telemetry.get().sync(Clock.SYSTEM.now() - sync_start, e.getErrorCode());
 		if (cold_start) {
+			progress.cancel();
 			int ecode = e.getErrorCode();
 			String s;
 			switch(ecode) {
@@ -203,7 +273,7 @@ public class HomeScreen extends Activity implements View.OnClickListener, Scanne
 	@Override
 	public void onSyncProgress(int total, int current) {
 		if (cold_start)
-			splash.update(total, current);
+			progress.update(total, current);
 	}
 	
 	//------
@@ -219,8 +289,8 @@ public class HomeScreen extends Activity implements View.OnClickListener, Scanne
 
 	@Override
 	public boolean onOptionsItemSelected(MenuItem item) {
-		if (item.getItemId() == R.id.sync && !scanner.isSyncing()) {
-			scanner.sync(this);
+		if (item.getItemId() == R.id.sync && sync_scheduler != null) {
+			sync_scheduler.syncNow(this);
 		}
 		return true;
 	}
@@ -0,0 +1,128 @@
+package com.example.android;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* Lock-free latency histogram with log-linear buckets: values are
+ * recorded with a relative precision of 1/16 (about 6%) from 1 up to
+ * 2^40, like HDR histograms do, in a fixed array of counters.
+ *
+ * Recording is a couple of atomic increments and never allocates, so it
+ * can be done from any thread on the frame path.
+ */
+public class LatencyHistogram {
+
+	public static final String TAG = "LatencyHistogram";
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB = 1 << SUB_BITS;
+	private static final int MAX_BITS = 40;
+	private static final int BUCKETS = (MAX_BITS - SUB_BITS + 1)*SUB;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public LatencyHistogram() {
+		super();
+	}
+
+	public void record(long value) {
+		if (value < 0) value = 0;
+		counts.incrementAndGet(index(value));
+		total.incrementAndGet();
+		sum.addAndGet(value);
+		long m = max.get();
+		while (value > m && !max.compareAndSet(m, value)) {
+			m = max.get();
+		}
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; ++i) {
+			counts.set(i, 0);
+		}
+		total.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	/* copies the counters, without stopping concurrent records: these
+	 * may be counted in some of the values of the snapshot and not in
+	 * others (e.g. in the buckets but not in the sum or the max), which
+	 * only skews the mean and the max by the few values recorded while
+	 * the snapshot is taken.
+	 */
+	public Snapshot snapshot() {
+		long[] c = new long[BUCKETS];
+		long n = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			c[i] = counts.get(i);
+			n += c[i];
+		}
+		return new Snapshot(c, n, sum.get(), max.get());
+	}
+
+	// bucket of a value.
+	static int index(long v) {
+		if (v < SUB) return (int)v;
+		int msb = 63 - Long.numberOfLeadingZeros(v);
+		if (msb >= MAX_BITS) return BUCKETS - 1;
+		int shift = msb - SUB_BITS;
+		int sub = (int)(v >>> shift) & (SUB - 1);
+		return (shift + 1)*SUB + sub;
+	}
+
+	// smallest value of a bucket.
+	static long lowest(int i) {
+		if (i < SUB) return i;
+		int shift = i/SUB - 1;
+		return (long)(SUB + i%SUB) << shift;
+	}
+
+	//----------
+	// Snapshot
+	//----------
+	public static class Snapshot {
+
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		private Snapshot(long[] counts, long count, long sum, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public long getMean() {
+			return count == 0 ? 0 : sum/count;
+		}
+
+		// value below which `p` percent of the records fall.
+		public long getPercentile(double p) {
+			if (count == 0) return 0;
+			long rank = (long)Math.ceil(count*p/100.0);
+			if (rank < 1) rank = 1;
+			long seen = 0;
+			for (int i = 0; i < counts.length; ++i) {
+				seen += counts[i];
+				if (seen >= rank) return Math.min(lowest(i), max);
+			}
+			return max;
+		}
+
+	}
+
+}
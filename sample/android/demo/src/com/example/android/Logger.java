@@ -0,0 +1,40 @@
+package com.example.android;
+
+import android.util.Log;
+
+/* Log sink. Classes that must also run off the device log through a
+ * logger rather than `android.util.Log` directly.
+ */
+public interface Logger {
+
+	public void info(String tag, String msg);
+	public void error(String tag, String msg, Throwable t);
+
+	// the Android log.
+	public static final Logger ANDROID = new Logger() {
+		@Override
+		public void info(String tag, String msg) {
+			Log.i(tag, msg);
+		}
+
+		@Override
+		public void error(String tag, String msg, Throwable t) {
+			if (t == null) Log.e(tag, msg);
+			else Log.e(tag, msg, t);
+		}
+	};
+
+	// discards everything.
+	public static final Logger NONE = new Logger() {
+		@Override
+		public void info(String tag, String msg) {
+			// void implementation
+		}
+
+		@Override
+		public void error(String tag, String msg, Throwable t) {
+			// void implementation
+		}
+	};
+
+}
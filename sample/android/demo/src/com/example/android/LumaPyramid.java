@@ -0,0 +1,191 @@
+package com.example.android;
+
+import com.moodstocks.android.Image;
+
+/* Downscaled copies of the scanned luma region, each level half the size
+ * of the previous one in each dimension (2x2 box filter).
+ *
+ * Large targets, e.g. a cover filling half the screen, are recognized
+ * just as well on a downscaled frame for a fraction of the cost, so the
+ * scan path tries the coarsest level first and only steps up to finer
+ * levels on a miss. Level 0 is the full resolution region, that is not
+ * stored here. Level buffers are only reallocated when they grow, so
+ * building the pyramid does not allocate in steady state.
+ *
+ * A miss at a coarse level costs a scan for nothing, so coarse levels
+ * only pay off when they find enough of the results: `useCoarse()`
+ * tracks their recent hit rate and turns them off below MIN_HIT_RATE,
+ * still probing them once every PROBE_PERIOD frames in case the targets
+ * change.
+ */
+public class LumaPyramid {
+
+	public static final String TAG = "LumaPyramid";
+
+	// levels whose smallest dimension would fall below this are not built.
+	public static final int MIN_SIZE = 120;
+	// a level costs about a quarter of the finer one: below this hit
+	// rate, scanning coarse levels first costs more than it saves.
+	public static final float MIN_HIT_RATE = 0.25f;
+	// frames between two coarse scans while they do not pay off.
+	public static final int PROBE_PERIOD = 16;
+	// weight of a new coarse scan in the recent hit rate.
+	private static final float ALPHA = 0.05f;
+
+	private byte[][] levels;
+	private int[] widths;
+	private int[] heights;
+	// number of levels built for the current frame, level 0 included.
+	private int built = 1;
+
+	// per-level counters
+	private long[] scans;
+	private long[] hits;
+	// recent hit rate of the coarse levels, and frames since they were
+	// last tried.
+	private float coarse_rate = 1;
+	private int since_probe = 0;
+
+	/* `depth` is the maximum number of downscaled levels. */
+	public LumaPyramid(int depth) {
+		super();
+		if (depth < 0) depth = 0;
+		levels = new byte[depth+1][];
+		widths = new int[depth+1];
+		heights = new int[depth+1];
+		scans = new long[depth+1];
+		hits = new long[depth+1];
+	}
+
+	/* builds the downscaled levels of the `w` x `h` luma rectangle at
+	 * (`x`,`y`) of `data`, whose rows are `stride` bytes apart. Returns
+	 * the index of the coarsest level built, 0 if the region is too
+	 * small to be downscaled.
+	 */
+	public synchronized int build(byte[] data, int x, int y, int w, int h, int stride) {
+		widths[0] = w;
+		heights[0] = h;
+		built = 1;
+		byte[] src = data;
+		int offset = y*stride + x;
+		while (built < levels.length) {
+			int lw = w/2;
+			int lh = h/2;
+			if (lw < MIN_SIZE || lh < MIN_SIZE) break;
+			if (levels[built] == null || levels[built].length < lw*lh) {
+				levels[built] = new byte[lw*lh];
+			}
+			downsample(src, offset, w, h, stride, levels[built]);
+			widths[built] = lw;
+			heights[built] = lh;
+			src = levels[built];
+			offset = 0;
+			stride = lw;
+			w = lw;
+			h = lh;
+			++built;
+		}
+		return built - 1;
+	}
+
+	/* writes into `dst` the 2x2 box filtered copy of the `w` x `h` luma
+	 * rectangle starting at `offset` in `src`, whose rows are `stride`
+	 * bytes apart. The result is `w/2` x `h/2` pixels, tightly packed.
+	 */
+	public static void downsample(byte[] src, int offset, int w, int h, int stride, byte[] dst) {
+		int dw = w/2;
+		int dh = h/2;
+		int d = 0;
+		for (int j = 0; j < dh; ++j) {
+			int p = offset + 2*j*stride;
+			int q = p + stride;
+			for (int i = 0; i < dw; ++i) {
+				int sum = (src[p] & 0xff) + (src[p+1] & 0xff)
+						+ (src[q] & 0xff) + (src[q+1] & 0xff);
+				dst[d++] = (byte)((sum + 2) >> 2);
+				p += 2;
+				q += 2;
+			}
+		}
+	}
+
+	/* query image for a downscaled level of the last built frame. The
+	 * image references a buffer owned by the pyramid, which is
+	 * overwritten by the next `build()`.
+	 */
+	public synchronized Image image(int level, int orientation) {
+		return new Image(levels[level], widths[level], heights[level], widths[level], orientation);
+	}
+
+	public synchronized int getLevels() {
+		return built;
+	}
+
+	public synchronized int getWidth(int level) {
+		return widths[level];
+	}
+
+	public synchronized int getHeight(int level) {
+		return heights[level];
+	}
+
+	//----------
+	// Counters
+	//----------
+
+	// records the outcome of a scan at `level`.
+	public synchronized void record(int level, boolean hit) {
+		++scans[level];
+		if (hit) ++hits[level];
+		if (level > 0) coarse_rate += ALPHA*((hit ? 1 : 0) - coarse_rate);
+	}
+
+	/* tells whether the next frame should be scanned at coarse levels
+	 * first, from their recent hit rate. Call once per frame.
+	 */
+	public synchronized boolean useCoarse() {
+		if (coarse_rate >= MIN_HIT_RATE || ++since_probe >= PROBE_PERIOD) {
+			since_probe = 0;
+			return true;
+		}
+		return false;
+	}
+
+	// recent hit rate of the coarse levels.
+	public synchronized float getCoarseHitRate() {
+		return coarse_rate;
+	}
+
+	public synchronized long getScans(int level) {
+		return scans[level];
+	}
+
+	public synchronized long getHits(int level) {
+		return hits[level];
+	}
+
+	// fraction of the scans at `level` that found a result.
+	public synchronized float getHitRate(int level) {
+		return scans[level] == 0 ? 0 : (float)hits[level]/scans[level];
+	}
+
+	public synchronized void reset() {
+		for (int i = 0; i < scans.length; ++i) {
+			scans[i] = 0;
+			hits[i] = 0;
+		}
+		coarse_rate = 1;
+		since_probe = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder(TAG).append(':');
+		for (int i = 0; i < scans.length; ++i) {
+			sb.append(" level ").append(i).append(' ')
+				.append(hits[i]).append('/').append(scans[i]);
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,132 @@
+package com.example.android;
+
+/* Rotated and/or mirrored view of a luma plane, e.g. the preview frames
+ * as they are displayed (see `CameraManager.DISPLAY_ROTATION`).
+ *
+ * Nothing is copied: view coordinates are mapped to an index in the
+ * underlying buffer as `origin + x*dx + y*dy`, so preprocessing code can
+ * work in display coordinates and read pixels straight from the frame.
+ * `copyTo()` materializes the view for the rare cases that need a real
+ * rotated buffer; it walks the frame in square tiles so that both the
+ * reads and the writes stay within a few cache lines.
+ */
+public class LumaView {
+
+	public static final String TAG = "LumaView";
+
+	// side of the tiles used by `copyTo()`, in pixels.
+	public static final int TILE = 32;
+
+	private byte[] data = null;
+	private int offset = 0;
+	private int stride = 0;
+	// view size
+	private int width = 0;
+	private int height = 0;
+	// index mapping
+	private int origin = 0;
+	private int dx = 1;
+	private int dy = 0;
+
+	public LumaView() {
+		super();
+	}
+
+	/* views the `w` x `h` luma rectangle starting at `offset` in `data`,
+	 * whose rows are `stride` bytes apart, rotated clockwise by
+	 * `quarters` quarter turns then mirrored horizontally if `mirror`.
+	 */
+	public void set(byte[] data, int offset, int w, int h, int stride, int quarters, boolean mirror) {
+		this.data = data;
+		this.offset = offset;
+		this.stride = stride;
+		switch (quarters & 3) {
+		case 0:
+			origin = offset;
+			dx = 1;
+			dy = stride;
+			break;
+		case 1:
+			origin = offset + (h-1)*stride;
+			dx = -stride;
+			dy = 1;
+			break;
+		case 2:
+			origin = offset + (h-1)*stride + w-1;
+			dx = -1;
+			dy = -stride;
+			break;
+		default:
+			origin = offset + w-1;
+			dx = stride;
+			dy = -1;
+			break;
+		}
+		boolean swap = (quarters & 1) != 0;
+		width = swap ? h : w;
+		height = swap ? w : h;
+		if (mirror) {
+			origin += (width-1)*dx;
+			dx = -dx;
+		}
+	}
+
+	// number of clockwise quarter turns for a rotation in degrees.
+	public static int quarters(int degrees) {
+		return ((degrees % 360 + 360) % 360)/90;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	// index in the underlying buffer of the view pixel (`x`,`y`).
+	public int index(int x, int y) {
+		return origin + x*dx + y*dy;
+	}
+
+	// luma of the view pixel (`x`,`y`), from 0 to 255.
+	public int get(int x, int y) {
+		return data[origin + x*dx + y*dy] & 0xff;
+	}
+
+	// abscissa in the source rectangle of the view pixel (`x`,`y`).
+	public int sourceX(int x, int y) {
+		return (index(x, y) - offset) % stride;
+	}
+
+	// ordinate in the source rectangle of the view pixel (`x`,`y`).
+	public int sourceY(int x, int y) {
+		return (index(x, y) - offset) / stride;
+	}
+
+	/* writes the view into `dst`, `getWidth()` x `getHeight()` pixels
+	 * tightly packed, and returns it. `dst` is allocated if null or too
+	 * small.
+	 */
+	public byte[] copyTo(byte[] dst) {
+		if (dst == null || dst.length < width*height) {
+			dst = new byte[width*height];
+		}
+		for (int ty = 0; ty < height; ty += TILE) {
+			int y_end = Math.min(ty + TILE, height);
+			for (int tx = 0; tx < width; tx += TILE) {
+				int x_end = Math.min(tx + TILE, width);
+				for (int y = ty; y < y_end; ++y) {
+					int src = origin + tx*dx + y*dy;
+					int d = y*width + tx;
+					for (int x = tx; x < x_end; ++x) {
+						dst[d++] = data[src];
+						src += dx;
+					}
+				}
+			}
+		}
+		return dst;
+	}
+
+}
@@ -1,7 +1,6 @@
 package com.example.android;
 
 import android.content.Context;
-import android.os.Bundle;
 import android.util.AttributeSet;
 import android.view.View;
 import android.widget.ImageView;
@@ -15,10 +14,24 @@ implements ScanActivity.Listener, SlidingDrawer.OnDrawerCloseListener,
 					 SlidingDrawer.OnDrawerOpenListener {
 
 	public static final String TAG = "Overlay";
-	private String ean_info = "";
-	private String qr_info = "";
-	private String images_info = "";
+
+	private static final String EAN_NONE = "[ ] EAN";
+	private static final String EAN_8 = "[X] EAN (8)";
+	private static final String EAN_13 = "[X] EAN (13)";
+	private static final String EAN_ALL = "[X] EAN (8,13)";
+	private static final String QR_ON = "[X] QR Codes";
+	private static final String QR_OFF = "[ ] QR Codes";
+
 	private SlidingDrawer drawer = null;
+	// views are looked up once, in `init()`.
+	private TextView ean_view;
+	private TextView qr_view;
+	private TextView images_view;
+	private TextView result_view;
+	private TextView info1_view;
+	private TextView info2_view;
+	private ImageView handle_view;
+	private boolean info_visible = false;
 
 	public Overlay(Context context, AttributeSet attrs) {
 		super(context, attrs);
@@ -29,58 +42,34 @@ implements ScanActivity.Listener, SlidingDrawer.OnDrawerCloseListener,
 		this.drawer.setOnDrawerCloseListener(this);
 		this.drawer.setOnDrawerOpenListener(this);
 		((ScrollView) findViewById(R.id.scroll)).setSmoothScrollingEnabled(true);
+		ean_view = (TextView) findViewById(R.id.ean_info);
+		qr_view = (TextView) findViewById(R.id.qrcode_info);
+		images_view = (TextView) findViewById(R.id.images_info);
+		result_view = (TextView) findViewById(R.id.result);
+		info1_view = (TextView) findViewById(R.id.info1);
+		info2_view = (TextView) findViewById(R.id.info2);
+		handle_view = (ImageView) findViewById(R.id.handle);
+		info_visible = false;
 		allInfoVisible(true);
 	}
 
-	private void eanInfo(boolean ean8, boolean ean13) {
-		TextView tv = (TextView) findViewById(R.id.ean_info);
-		String s;
-		if (ean8 || ean13) {
-			s = "[X] EAN";
-		}
-		else s = "[ ] EAN";
-		if (ean8 || ean13) {
-			if (ean8 && ean13) {
-				s += " (8,13)";
-			}
-			else {
-				if (ean8) s += " (8)";
-				else s += " (13)";
-			}
-		}
-		if (!s.equals(ean_info)) {
-			tv.setText(s);
-			ean_info = new String(s);
-		}
+	public static String eanLabel(boolean ean8, boolean ean13) {
+		if (ean8 && ean13) return EAN_ALL;
+		if (ean8) return EAN_8;
+		if (ean13) return EAN_13;
+		return EAN_NONE;
 	}
 
-	private void qrInfo(boolean qr) {
-		TextView tv = (TextView) findViewById(R.id.qrcode_info);
-		String s;
-		if (qr) {
-			s = "[X] QR Codes";
-		}
-		else {
-			s = "[ ] QR Codes";
-		}
-		if (!s.equals(qr_info)) {
-			tv.setText(s);
-			qr_info = new String(s);
-		}
+	public static String qrLabel(boolean qr) {
+		return qr ? QR_ON : QR_OFF;
 	}
 
-	private void imagesInfo(int count) {
-		TextView tv = (TextView) findViewById(R.id.images_info);
-		String s = "[X] "+count+" images";
-		if (!s.equals(images_info)) {
-			tv.setText(s);
-			images_info = new String(s);
-		}
+	public static String imagesLabel(int count) {
+		return "[X] "+count+" images";
 	}
 
 	private void displayResult(String result) {
-		TextView res = (TextView) findViewById(R.id.result);
-		res.setText(result);
+		result_view.setText(result);
 		if (drawer.getVisibility() != View.VISIBLE) {
 			drawer.setVisibility(View.VISIBLE);
 		}
@@ -90,14 +79,16 @@ implements ScanActivity.Listener, SlidingDrawer.OnDrawerCloseListener,
 	}
 
 	private void allInfoVisible(boolean b) {
+		if (b == info_visible) return;
+		info_visible = b;
 		int v = b ? VISIBLE : INVISIBLE;
-		((TextView) findViewById(R.id.info1)).setVisibility(v);
-		((TextView) findViewById(R.id.info2)).setVisibility(v);
-		((TextView) findViewById(R.id.ean_info)).setVisibility(v);
-		((TextView) findViewById(R.id.qrcode_info)).setVisibility(v);
-		((TextView) findViewById(R.id.images_info)).setVisibility(v);
+		info1_view.setVisibility(v);
+		info2_view.setVisibility(v);
+		ean_view.setVisibility(v);
+		qr_view.setVisibility(v);
+		images_view.setVisibility(v);
 		int id = b ? android.R.drawable.arrow_up_float : android.R.drawable.arrow_down_float;
-		((ImageView) findViewById(R.id.handle)).setImageResource(id);
+		handle_view.setImageResource(id);
 	}
 
 
@@ -105,23 +96,22 @@ implements ScanActivity.Listener, SlidingDrawer.OnDrawerCloseListener,
 	// ScanActivity.Listener
 	//-----------------------
 	@Override
-	public void onStatusUpdate(Bundle status) {
+	public void onStatusUpdate(ScanStatus status) {
 
-		// update EAN info
-		boolean ean8 = status.getBoolean("decode_ean_8");
-		boolean ean13 = status.getBoolean("decode_ean_13");
-		eanInfo(ean8, ean13);
-
-		// update QR codes info
-		qrInfo(status.getBoolean("decode_qrcode"));
+		// update EAN and QR codes info
+		if (status.isDirty(ScanStatus.DECODE)) {
+			ean_view.setText(eanLabel(status.isDecodingEan8(), status.isDecodingEan13()));
+			qr_view.setText(qrLabel(status.isDecodingQrcode()));
+		}
 
 		// update images info
-		imagesInfo(status.getInt("images"));
+		if (status.isDirty(ScanStatus.IMAGES)) {
+			images_view.setText(imagesLabel(status.getImages()));
+		}
 
 		// display result
-		Bundle result = status.getBundle("result");
-		if (result != null) {
-			displayResult(result.getString("value"));
+		if (status.isDirty(ScanStatus.RESULT) && status.hasResult()) {
+			displayResult(status.getResultValue());
 		}
 		if (drawer.isOpened()) allInfoVisible(false);
 	}
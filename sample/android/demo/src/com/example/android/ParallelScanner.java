@@ -0,0 +1,174 @@
+package com.example.android;
+
+import com.moodstocks.android.*;
+
+/* Scans a frame with one `ScannerSession` per enabled result type
+ * instead of a single session running every decoder in turn, so that
+ * the decoders can run on different cores.
+ *
+ * All sessions scan the same `Image`, and thus the same read-only
+ * buffer. The first session to find something wins: the others are
+ * cancelled and the listener is notified once per frame, with the
+ * result or with null if no session found anything.
+ */
+public class ParallelScanner {
+
+	public static final String TAG = "ParallelScanner";
+
+	private static final int[] TYPES = {
+		Result.Type.IMAGE, Result.Type.EAN8, Result.Type.EAN13, Result.Type.QRCODE
+	};
+
+	private Worker[] workers;
+	private ScannerSession.ScanListener listener = null;
+	// number of the current scan: callbacks of older scans are ignored.
+	private int seq = 0;
+	// workers still scanning the current frame.
+	private int pending = 0;
+	private MoodstocksError error = null;
+
+	private static class Worker {
+
+		ScannerSession session;
+		boolean busy = false;
+		// listener of the worker's scans. Replaced when a scan is
+		// abandoned, as the session may still report it later.
+		Callback callback = null;
+
+		Worker(Scanner scanner, int options) {
+			session = new ScannerSession(scanner);
+			session.setOptions(options);
+		}
+
+	}
+
+	/* listener of one worker, reused from scan to scan as long as every
+	 * scan reports: a session cancelled by the next scan may still report,
+	 * and must not be taken for the new one.
+	 */
+	private class Callback implements ScannerSession.ScanListener {
+
+		final Worker worker;
+		// scan being reported.
+		int seq = 0;
+
+		Callback(Worker worker) {
+			this.worker = worker;
+		}
+
+		@Override
+		public void onScanStart() {
+			// void implementation
+		}
+
+		@Override
+		public void onScanComplete(Result result) {
+			onWorkerDone(this, result, null);
+		}
+
+		@Override
+		public void onScanFailed(MoodstocksError e) {
+			onWorkerDone(this, null, e);
+		}
+
+	}
+
+	public ParallelScanner(Scanner scanner, int options) {
+		super();
+		int n = 0;
+		for (int t : TYPES) {
+			if ((options & t) != 0) ++n;
+		}
+		workers = new Worker[n];
+		n = 0;
+		for (int t : TYPES) {
+			if ((options & t) != 0) workers[n++] = new Worker(scanner, t);
+		}
+	}
+
+	/* scans `img`. Without any worker, i.e. if no type handled here is
+	 * enabled, the scan completes right away with no result.
+	 */
+	public void scan(ScannerSession.ScanListener l, Image img) {
+		int s;
+		synchronized(this) {
+			s = ++seq;
+			listener = l;
+			error = null;
+			pending = workers.length;
+			for (Worker w : workers) {
+				// the previous scan of a busy worker is abandoned.
+				if (w.callback == null || w.busy) w.callback = new Callback(w);
+				w.callback.seq = s;
+				w.busy = true;
+			}
+		}
+		l.onScanStart();
+		if (workers.length == 0) {
+			synchronized(this) {
+				if (seq != s || listener == null) return;
+				listener = null;
+			}
+			l.onScanComplete(null);
+			return;
+		}
+		for (Worker w : workers) {
+			w.session.scan(w.callback, img);
+		}
+	}
+
+	public void scanCancel() {
+		synchronized(this) {
+			++seq;
+			pending = 0;
+			listener = null;
+			for (Worker w : workers) {
+				abandon(w);
+			}
+		}
+		for (Worker w : workers) {
+			w.session.scanCancel();
+		}
+	}
+
+	private void onWorkerDone(Callback c, Result result, MoodstocksError e) {
+		ScannerSession.ScanListener l;
+		synchronized(this) {
+			// late callback of a cancelled or former scan.
+			Worker w = c.worker;
+			if (c != w.callback || c.seq != seq || !w.busy || listener == null) return;
+			w.busy = false;
+			--pending;
+			if (e != null && error == null) error = e;
+			if (result == null && pending > 0) return;
+			l = listener;
+			listener = null;
+			if (result != null) {
+				// first result wins: stop the other workers.
+				for (Worker o : workers) {
+					if (o.busy) {
+						abandon(o);
+						o.session.scanCancel();
+					}
+				}
+				pending = 0;
+			}
+			else {
+				e = error;
+			}
+		}
+		if (result == null && e != null) {
+			l.onScanFailed(e);
+		}
+		else {
+			l.onScanComplete(result);
+		}
+	}
+
+	// the scan of `w` is cancelled: its callback is not reused. Must hold the lock.
+	private void abandon(Worker w) {
+		if (w.busy) w.callback = null;
+		w.busy = false;
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.example.android;
+
+import java.io.File;
+import java.io.IOException;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import com.moodstocks.android.Image;
+
+/* Feeds stored photos to a `BatchScanner`, converted to luma images like
+ * the camera frames.
+ *
+ * Photos are decoded subsampled so that their largest side is at most
+ * `max_size`, as scanning gains nothing from more pixels than a preview
+ * frame holds. Photos are identified by their path, and decoded by the
+ * workers in parallel, each one reusing its own ARGB buffer for the
+ * conversion from one photo to the next.
+ */
+public class PhotoSource implements BatchScanner.Source {
+
+	public static final String TAG = "PhotoSource";
+
+	// default largest side of the scanned images, as for preview frames.
+	public static final int DEFAULT_MAX_SIZE = 1280;
+
+	private File[] files;
+	private int next = 0;
+	private int max_size;
+	private int orientation;
+	private final ThreadLocal<int[]> argb = new ThreadLocal<int[]>();
+
+	/* `orientation` is the one passed to the scanner for every photo, as
+	 * returned by `OrientationListener`.
+	 */
+	public PhotoSource(File[] files, int max_size, int orientation) {
+		super();
+		checkMaxSize(max_size);
+		this.files = files;
+		this.max_size = max_size;
+		this.orientation = orientation;
+	}
+
+	public int size() {
+		return files.length;
+	}
+
+	@Override
+	public String next() {
+		if (next >= files.length) return null;
+		return files[next++].getPath();
+	}
+
+	@Override
+	public Image load(String path) throws IOException {
+		BitmapFactory.Options opts = new BitmapFactory.Options();
+		opts.inJustDecodeBounds = true;
+		BitmapFactory.decodeFile(path, opts);
+		opts.inJustDecodeBounds = false;
+		opts.inSampleSize = sampleSize(opts.outWidth, opts.outHeight, max_size);
+		Bitmap bmp = BitmapFactory.decodeFile(path, opts);
+		if (bmp == null) {
+			throw new IOException("could not decode "+path);
+		}
+		int w = bmp.getWidth();
+		int h = bmp.getHeight();
+		int[] buf = argb.get();
+		if (buf == null || buf.length < w*h) {
+			buf = new int[w*h];
+			argb.set(buf);
+		}
+		bmp.getPixels(buf, 0, w, 0, 0, w, h);
+		bmp.recycle();
+		byte[] luma = new byte[w*h];
+		luma(buf, w*h, luma);
+		return new Image(luma, w, h, w, orientation);
+	}
+
+	/* smallest power of two subsampling that brings a `w` x `h` photo
+	 * down to at most `max_size` pixels on its largest side.
+	 */
+	public static int sampleSize(int w, int h, int max_size) {
+		checkMaxSize(max_size);
+		int sample = 1;
+		while (w/sample > max_size || h/sample > max_size) {
+			sample *= 2;
+		}
+		return sample;
+	}
+
+	// no subsampling brings a photo down to nothing.
+	private static void checkMaxSize(int max_size) {
+		if (max_size <= 0) {
+			throw new IllegalArgumentException("max_size must be positive, not "+max_size);
+		}
+	}
+
+	/* converts the first `n` ARGB pixels of `src` into luma (BT.601). */
+	public static void luma(int[] src, int n, byte[] dst) {
+		for (int i = 0; i < n; ++i) {
+			int c = src[i];
+			int r = (c >> 16) & 0xff;
+			int g = (c >> 8) & 0xff;
+			int b = c & 0xff;
+			dst[i] = (byte)((77*r + 150*g + 29*b + 128) >> 8);
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.example.android;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Per-stage latencies and counters of the frame pipeline:
+ *
+ *   onPreviewFrame -> QUEUE -> session.scan -> SCAN -> onScanComplete
+ *   -> RENDER -> overlay updated
+ *
+ * TOTAL spans from the reception of a frame to the end of its handling,
+ * whether it was scanned or skipped (blurry, still, throttled).
+ * Latencies are taken with `System.nanoTime()` and recorded in
+ * microseconds. Use `dump()` to get a compact report, one line per
+ * stage, that can be pulled from the device logs.
+ */
+public class PipelineMetrics {
+
+	public static final String TAG = "PipelineMetrics";
+
+	// stages
+	public static final int QUEUE = 0;
+	public static final int SCAN = 1;
+	public static final int RENDER = 2;
+	public static final int TOTAL = 3;
+	private static final String[] NAMES = { "queue", "scan", "render", "total" };
+
+	private static final PipelineMetrics instance = new PipelineMetrics();
+
+	private final LatencyHistogram[] stages = new LatencyHistogram[NAMES.length];
+	private final AtomicLong received = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong scanned = new AtomicLong();
+	private final AtomicLong results = new AtomicLong();
+	private volatile long started;
+
+	public PipelineMetrics() {
+		super();
+		for (int i = 0; i < stages.length; ++i) {
+			stages[i] = new LatencyHistogram();
+		}
+		started = System.nanoTime();
+	}
+
+	// instance of the app, reported by `ScanActivity`.
+	public static PipelineMetrics get() {
+		return instance;
+	}
+
+	public void reset() {
+		for (LatencyHistogram h : stages) {
+			h.reset();
+		}
+		received.set(0);
+		dropped.set(0);
+		scanned.set(0);
+		results.set(0);
+		started = System.nanoTime();
+	}
+
+	// records the duration of a stage, started at `start` (in ns).
+	public void record(int stage, long start) {
+		stages[stage].record((System.nanoTime() - start)/1000);
+	}
+
+	public void frameReceived() {
+		received.incrementAndGet();
+	}
+
+	public void frameDropped() {
+		dropped.incrementAndGet();
+	}
+
+	public void frameScanned() {
+		scanned.incrementAndGet();
+	}
+
+	public void resultFound() {
+		results.incrementAndGet();
+	}
+
+	public LatencyHistogram.Snapshot snapshot(int stage) {
+		return stages[stage].snapshot();
+	}
+
+	public long getReceived() {
+		return received.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public long getScanned() {
+		return scanned.get();
+	}
+
+	public long getResults() {
+		return results.get();
+	}
+
+	// frames received per second since the last reset.
+	public float getFps() {
+		long elapsed = System.nanoTime() - started;
+		return elapsed <= 0 ? 0 : received.get()*1e9f/elapsed;
+	}
+
+	/* compact report:
+	 *   fps=<f> rx=<n> drop=<n> scan=<n> res=<n>
+	 *   <stage> n=<count> p50=<us> p90=<us> p99=<us> max=<us>
+	 */
+	public String dump() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("fps=").append(Math.round(getFps()*10)/10.0f)
+			.append(" rx=").append(received.get())
+			.append(" drop=").append(dropped.get())
+			.append(" scan=").append(scanned.get())
+			.append(" res=").append(results.get());
+		for (int i = 0; i < stages.length; ++i) {
+			LatencyHistogram.Snapshot s = stages[i].snapshot();
+			sb.append('\n').append(NAMES[i])
+				.append(" n=").append(s.getCount())
+				.append(" p50=").append(s.getPercentile(50))
+				.append(" p90=").append(s.getPercentile(90))
+				.append(" p99=").append(s.getPercentile(99))
+				.append(" max=").append(s.getMax());
+		}
+		return sb.toString();
+	}
+
+}
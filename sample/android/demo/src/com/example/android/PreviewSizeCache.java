@@ -0,0 +1,154 @@
+package com.example.android;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+/* Remembers, per camera, the preview size that was found to work and
+ * the sizes that were found to be broken, so that the negotiation done
+ * by `CameraManager` is not replayed at every start.
+ *
+ * Everything is forgotten as soon as the device fingerprint (i.e. the
+ * ROM), the list of supported sizes or the screen ratio changes.
+ *
+ * Values are read once, when constructed, and changes are only kept in
+ * memory until `save()`, that writes them at most once per session on a
+ * background thread: `SharedPreferences.Editor.commit()` writes to disk
+ * synchronously, and `apply()` is not available before API 9.
+ */
+public class PreviewSizeCache {
+
+	public static final String TAG = "PreviewSizeCache";
+
+	private static final String PREFS = "preview_sizes";
+	private static final String FINGERPRINT = "fingerprint";
+	private static final String SIZES = "sizes";
+	private static final String RATIO = "ratio";
+	private static final String WIDTH = "width";
+	private static final String HEIGHT = "height";
+	private static final String BANNED = "banned";
+
+	private SharedPreferences prefs;
+	private String prefix;
+
+	private String fingerprint;
+	private String sizes;
+	private float ratio;
+	private int width;
+	private int height;
+	private boolean has_size;
+	private String banned;
+	private boolean dirty = false;
+
+	public PreviewSizeCache(Context c, int camera_id) {
+		super();
+		this.prefs = c.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+		this.prefix = camera_id+".";
+		fingerprint = prefs.getString(prefix+FINGERPRINT, null);
+		sizes = prefs.getString(prefix+SIZES, null);
+		ratio = prefs.getFloat(prefix+RATIO, 0);
+		has_size = prefs.contains(prefix+WIDTH) && prefs.contains(prefix+HEIGHT);
+		width = prefs.getInt(prefix+WIDTH, 0);
+		height = prefs.getInt(prefix+HEIGHT, 0);
+		banned = prefs.getString(prefix+BANNED, "");
+	}
+
+	/* checks that the cached values were computed for this device, this
+	 * list of supported sizes and this screen ratio, and clears them
+	 * otherwise. Returns true if the cached values can be used.
+	 */
+	public synchronized boolean validate(String sizes, float ratio) {
+		if (Build.FINGERPRINT.equals(fingerprint) && sizes.equals(this.sizes) &&
+				Math.abs(this.ratio - ratio) < 0.001f) {
+			return true;
+		}
+		fingerprint = Build.FINGERPRINT;
+		this.sizes = sizes;
+		this.ratio = ratio;
+		has_size = false;
+		banned = "";
+		dirty = true;
+		return false;
+	}
+
+	// true if a size has been confirmed to work.
+	public synchronized boolean hasSize() {
+		return has_size;
+	}
+
+	public synchronized int getWidth() {
+		return width;
+	}
+
+	public synchronized int getHeight() {
+		return height;
+	}
+
+	// records a size that delivered frames of the expected length.
+	public synchronized void confirm(int w, int h) {
+		if (has_size && width == w && height == h) return;
+		has_size = true;
+		width = w;
+		height = h;
+		dirty = true;
+	}
+
+	// records a size that turned out not to be available.
+	public synchronized void ban(int w, int h) {
+		String s = w+"x"+h;
+		banned = banned.length() == 0 ? s : banned+","+s;
+		has_size = false;
+		dirty = true;
+	}
+
+	/* writes the changes made since the last call, if any, from a
+	 * background thread.
+	 */
+	public synchronized void save() {
+		if (!dirty) return;
+		dirty = false;
+		final SharedPreferences.Editor e = prefs.edit()
+			.putString(prefix+FINGERPRINT, fingerprint)
+			.putString(prefix+SIZES, sizes)
+			.putFloat(prefix+RATIO, ratio)
+			.putString(prefix+BANNED, banned);
+		if (has_size) {
+			e.putInt(prefix+WIDTH, width).putInt(prefix+HEIGHT, height);
+		}
+		else {
+			e.remove(prefix+WIDTH).remove(prefix+HEIGHT);
+		}
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				e.commit();
+			}
+		}, TAG).start();
+	}
+
+	// banned sizes, as consecutive (width, height) pairs.
+	public synchronized int[] getBanned() {
+		String b = banned;
+		if (b.length() == 0) return new int[0];
+		String[] l = b.split(",");
+		int[] sizes = new int[2*l.length];
+		for (int i = 0; i < l.length; ++i) {
+			int x = l[i].indexOf('x');
+			sizes[2*i] = Integer.parseInt(l[i].substring(0, x));
+			sizes[2*i+1] = Integer.parseInt(l[i].substring(x+1));
+		}
+		return sizes;
+	}
+
+	// builds the signature of a list of supported sizes, given as
+	// consecutive (width, height) pairs.
+	public static String signature(int[] sizes) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i+1 < sizes.length; i += 2) {
+			if (i != 0) sb.append(',');
+			sb.append(sizes[i]).append('x').append(sizes[i+1]);
+		}
+		return sb.toString();
+	}
+
+}
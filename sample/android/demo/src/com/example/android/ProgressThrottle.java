@@ -0,0 +1,81 @@
+package com.example.android;
+
+import android.os.Handler;
+
+/* Coalesces progress updates so that a listener is called at most once
+ * per FRAME_DELAY, with the latest value. The final update (current ==
+ * total) is always delivered, right away.
+ *
+ * Must be used from the thread of the given handler.
+ */
+public class ProgressThrottle implements Runnable {
+
+	public static final String TAG = "ProgressThrottle";
+
+	public static interface Listener {
+		public void onProgress(int total, int current);
+	}
+
+	// one display frame at 60 fps.
+	public static final long FRAME_DELAY = 16;
+
+	private Handler handler;
+	private Listener listener;
+	private Clock clock;
+	private long last = Long.MIN_VALUE;
+	private boolean pending = false;
+	private int total = 0;
+	private int current = 0;
+
+	public ProgressThrottle(Handler handler, Listener listener, Clock clock) {
+		super();
+		this.handler = handler;
+		this.listener = listener;
+		this.clock = clock;
+	}
+
+	public void update(int total, int current) {
+		this.total = total;
+		this.current = current;
+		if (current >= total) {
+			// final value: deliver now.
+			cancel();
+			deliver();
+			return;
+		}
+		if (pending) return;
+		long wait = last + FRAME_DELAY - clock.now();
+		if (last == Long.MIN_VALUE || wait <= 0) {
+			deliver();
+		}
+		else {
+			pending = true;
+			handler.postDelayed(this, wait);
+		}
+	}
+
+	// true if an update is waiting to be delivered.
+	public boolean isPending() {
+		return pending;
+	}
+
+	// drops any update not delivered yet.
+	public void cancel() {
+		if (pending) {
+			handler.removeCallbacks(this);
+			pending = false;
+		}
+	}
+
+	private void deliver() {
+		last = clock.now();
+		listener.onProgress(total, current);
+	}
+
+	@Override
+	public void run() {
+		pending = false;
+		deliver();
+	}
+
+}
@@ -0,0 +1,314 @@
+package com.example.android;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.util.Log;
+
+/* Bounded cache of resolved result payloads, keyed by result type and
+ * value, so that re-scanning a recent product does not resolve it again.
+ *
+ * Entries are evicted least-recently-used first once MAX_ENTRIES is
+ * reached, and expire TTL after being resolved. The cache can be saved
+ * to and loaded from a file to survive across sessions, preferably in
+ * the background. It is thread-safe: it can be used from the scan and
+ * UI threads.
+ */
+public class ResultCache {
+
+	public static final String TAG = "ResultCache";
+
+	public static interface Resolver {
+		// turns a scanned result into the payload to display.
+		public String resolve(int type, String value);
+	}
+
+	public static final int MAX_ENTRIES = 256;
+	public static final long TTL = 3600000; /* an hour in ms */
+
+	private static final int VERSION = 3;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/* single background thread for the file I/O, so that saves and loads
+	 * happen in the order they were requested.
+	 */
+	private static final ExecutorService IO = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, TAG);
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	private static ResultCache instance = null;
+
+	private final LinkedHashMap<String, Payload> entries;
+	private final int max_entries;
+	private final long ttl;
+	private Clock clock;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long expirations = 0;
+
+	private static class Payload {
+		int type;
+		String value;
+		String payload;
+		long time;
+	}
+
+	public ResultCache(int max_entries, long ttl, Clock clock) {
+		super();
+		this.max_entries = max_entries;
+		this.ttl = ttl;
+		this.clock = clock;
+		// access-ordered, so that the eldest entry is the least recently used.
+		this.entries = new LinkedHashMap<String, Payload>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Payload> eldest) {
+				if (size() > ResultCache.this.max_entries) {
+					++evictions;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	// process-wide cache, with wall-clock expiry so that it can be persisted.
+	public static synchronized ResultCache get() {
+		if (instance == null) {
+			instance = new ResultCache(MAX_ENTRIES, TTL, Clock.WALL);
+		}
+		return instance;
+	}
+
+	private static String key(int type, String value) {
+		return type+":"+value;
+	}
+
+	/* returns the payload of a result, from the cache if present and
+	 * fresh, from `resolver` otherwise.
+	 */
+	public String resolve(int type, String value, Resolver resolver) {
+		String k = key(type, value);
+		synchronized(this) {
+			Payload e = entries.get(k);
+			if (e != null) {
+				if (clock.now() - e.time < ttl) {
+					++hits;
+					return e.payload;
+				}
+				entries.remove(k);
+				++expirations;
+			}
+			++misses;
+		}
+		// resolve without holding the lock: it may be slow.
+		String payload = resolver.resolve(type, value);
+		put(type, value, payload);
+		return payload;
+	}
+
+	public synchronized void put(int type, String value, String payload) {
+		Payload e = new Payload();
+		e.type = type;
+		e.value = value;
+		e.payload = payload;
+		e.time = clock.now();
+		entries.put(key(type, value), e);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	// entries dropped because the cache was full.
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	// entries dropped because they were too old.
+	public synchronized long getExpirations() {
+		return expirations;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return TAG+": "+entries.size()+" entries, "+hits+" hits, "+misses+" misses, "+
+				evictions+" evictions, "+expirations+" expirations";
+	}
+
+	//-------------
+	// Persistence
+	//-------------
+
+	/* writes the fresh entries to `f`, least recently used first. The
+	 * entries are copied under the lock and written without it, to a
+	 * temporary file that then replaces `f`: a save that does not
+	 * complete (crash, full disk) leaves the previous file as it was.
+	 */
+	public void save(File f) {
+		Payload[] fresh;
+		synchronized(this) {
+			long now = clock.now();
+			fresh = new Payload[entries.size()];
+			int n = 0;
+			for (Payload e : entries.values()) {
+				if (now - e.time < ttl) fresh[n++] = e;
+			}
+			Payload[] t = new Payload[n];
+			System.arraycopy(fresh, 0, t, 0, n);
+			fresh = t;
+		}
+		File tmp = new File(f.getPath()+".tmp");
+		FileOutputStream file = null;
+		boolean saved = false;
+		try {
+			file = new FileOutputStream(tmp);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+			out.writeInt(VERSION);
+			out.writeInt(fresh.length);
+			for (Payload e : fresh) {
+				out.writeInt(e.type);
+				writeString(out, e.value);
+				writeString(out, e.payload);
+				out.writeLong(e.time);
+			}
+			out.flush();
+			// on disk before it replaces the previous file.
+			file.getFD().sync();
+			saved = true;
+		} catch (IOException e) {
+			Log.e(TAG, "ERROR: Could not save result cache", e);
+		} finally {
+			close(file);
+		}
+		if (saved && !tmp.renameTo(f)) {
+			Log.e(TAG, "ERROR: Could not replace result cache "+f);
+			saved = false;
+		}
+		if (!saved) tmp.delete();
+	}
+
+	/* adds the fresh entries stored in `f`, if any. Entries resolved in
+	 * the meantime are kept. The file is read without holding the lock.
+	 */
+	public void load(File f) {
+		if (!f.exists()) return;
+		DataInputStream in = null;
+		Payload[] loaded = null;
+		int n = 0;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+			if (in.readInt() != VERSION) return;
+			loaded = new Payload[Math.max(0, Math.min(in.readInt(), max_entries))];
+			// no string can be longer than the file.
+			long limit = f.length();
+			for (; n < loaded.length; ++n) {
+				Payload e = new Payload();
+				e.type = in.readInt();
+				e.value = readString(in, limit);
+				e.payload = readString(in, limit);
+				e.time = in.readLong();
+				loaded[n] = e;
+			}
+		} catch (IOException e) {
+			Log.e(TAG, "ERROR: Could not load result cache", e);
+		} finally {
+			close(in);
+		}
+		if (loaded == null) return;
+		synchronized(this) {
+			long now = clock.now();
+			for (int i = 0; i < n; ++i) {
+				Payload e = loaded[i];
+				String k = key(e.type, e.value);
+				if (now - e.time < ttl && !entries.containsKey(k)) {
+					entries.put(k, e);
+				}
+			}
+		}
+	}
+
+	// `save()` on the background I/O thread.
+	public void saveInBackground(final File f) {
+		IO.execute(new Runnable() {
+			@Override
+			public void run() {
+				save(f);
+			}
+		});
+	}
+
+	// `load()` on the background I/O thread.
+	public void loadInBackground(final File f) {
+		IO.execute(new Runnable() {
+			@Override
+			public void run() {
+				load(f);
+			}
+		});
+	}
+
+	/* strings are written as their length in UTF-8 bytes, -1 for null,
+	 * then the bytes: unlike `writeUTF()`, this has no 64 KB limit.
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] b = s.getBytes(UTF8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	private static String readString(DataInputStream in, long limit) throws IOException {
+		int len = in.readInt();
+		if (len == -1) return null;
+		if (len < 0 || len > limit) throw new IOException("bad string length: "+len);
+		byte[] b = new byte[len];
+		in.readFully(b);
+		return new String(b, UTF8);
+	}
+
+	private static void close(Closeable c) {
+		if (c == null) return;
+		try {
+			c.close();
+		} catch (IOException e) {
+			// nothing to do
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.example.android;
+
+import com.moodstocks.android.Result;
+
+/* Confirms a result only once it has been found in at least `votes` of
+ * the last `window` scanned frames, so that a frame-level flicker
+ * between two codes (or between a code and nothing) does not reach the
+ * UI.
+ *
+ * Results are keyed by type and value. The window is a fixed ring of
+ * references to the results themselves, and confidence is counted over
+ * it, so feeding a frame allocates nothing.
+ */
+public class ResultConsensus {
+
+	public static final String TAG = "ResultConsensus";
+
+	private final Result[] window;
+	private final int votes;
+	private int next = 0;
+	private Result confirmed = null;
+
+	public ResultConsensus(int votes, int window) {
+		super();
+		if (window < 1) window = 1;
+		this.window = new Result[window];
+		this.votes = Math.max(1, Math.min(votes, window));
+	}
+
+	/* records the outcome of a scan, `null` meaning that nothing was
+	 * found. Returns the result if it has just been confirmed and differs
+	 * from the previously confirmed one, null otherwise.
+	 */
+	public synchronized Result add(Result r) {
+		window[next] = r;
+		next = (next + 1) % window.length;
+		if (r == null || same(r, confirmed)) return null;
+		if (confidence(r) < votes) return null;
+		confirmed = r;
+		return r;
+	}
+
+	// number of frames of the window in which `r` was found.
+	public synchronized int confidence(Result r) {
+		int n = 0;
+		for (int i = 0; i < window.length; ++i) {
+			if (window[i] != null && same(window[i], r)) ++n;
+		}
+		return n;
+	}
+
+	public synchronized Result getConfirmed() {
+		return confirmed;
+	}
+
+	public synchronized void reset() {
+		for (int i = 0; i < window.length; ++i) {
+			window[i] = null;
+		}
+		next = 0;
+		confirmed = null;
+	}
+
+	private static boolean same(Result a, Result b) {
+		if (a == null || b == null) return false;
+		if (a.getType() != b.getType()) return false;
+		String va = a.getValue();
+		String vb = b.getValue();
+		return va == null ? vb == null : va.equals(vb);
+	}
+
+}
@@ -5,18 +5,24 @@ import com.moodstocks.android.*;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.DialogInterface;
-import android.hardware.Camera;
+
 import android.os.Bundle;
+import android.util.Log;
+import android.view.Display;
 import android.view.SurfaceView;
 import android.widget.SlidingDrawer;
 
-public class ScanActivity extends Activity implements ScannerSession.ScanListener, CameraManager.Listener {
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ScanActivity extends Activity implements ScannerSession.ScanListener, CameraManager.Listener, ScanDispatcher.Listener, ResultCache.Resolver {
 
 	//-----------------------------------
 	// Interface implemented by overlays
 	//-----------------------------------
 	public static interface Listener {
-		public void onStatusUpdate(Bundle status);
+		public void onStatusUpdate(ScanStatus status);
 	}
 
 	// Enabled scanning types: configure it according to your needs.
@@ -24,20 +30,99 @@ public class ScanActivity extends Activity implements ScannerSession.ScanListene
 	// Feel free to add `EAN8` if you want in addition to decode EAN-8.
 	private int ScanOptions = Result.Type.IMAGE | Result.Type.EAN13 | Result.Type.QRCODE;
 
+	// What to do with frames received while a scan is running: here we
+	// only keep the most recent one so that results match what the user
+	// is currently pointing at.
+	private ScanDispatcher.Policy ScanPolicy = ScanDispatcher.Policy.LATEST_WINS;
+
+	// Fraction of the preview that is scanned, centered. Keep it to 1 to
+	// scan full frames; barcode-only apps can use a smaller value (e.g.
+	// 0.6) to save work as codes are mostly held in the middle.
+	// Use `setScanRegion()` to scan an arbitrary rectangle instead.
+	private float ScanRegionSize = 1.0f;
+
+	// Skip frames that are noticeably blurrier than the recent ones
+	// (e.g. while the camera refocuses) instead of scanning them.
+	private boolean SkipBlurryFrames = true;
+
+	// A result is only displayed once found in `ResultVotes` of the last
+	// `ResultWindow` scanned frames. Use 1 and 1 to display any result
+	// as soon as it is found.
+	private int ResultVotes = 2;
+	private int ResultWindow = 3;
+
+	// Scan each frame with one session per enabled type, in parallel,
+	// instead of running the decoders one after the other. Worth it on
+	// multi-core devices when several types are enabled.
+	private boolean ScanInParallel = false;
+
+	// Scan a half resolution copy of each frame first, and only scan the
+	// full resolution frame if nothing was found. Saves a lot of work when
+	// targets are large in the frame, e.g. image recognition of covers,
+	// but costs more when they are not: the half resolution scan is then
+	// only tried while it finds enough of the results.
+	private boolean CoarseToFine = false;
+
+	// Do not scan frames that look like the last scanned one, e.g. while
+	// the phone lies still, and reuse its outcome instead.
+	private boolean SkipStillFrames = true;
+
+	// Stretch the contrast of dark or dull frames before scanning them,
+	// e.g. in poorly lit places. Bright, contrasted frames are untouched.
+	private boolean NormalizeContrast = true;
+
+	// Record the preview frames to `frames.rec` in the app files, to
+	// replay them off the device with `FrameReplayer`.
+	private boolean RecordFrames = false;
+
+	// Keep resolved results in `results.cache` in the app files, so that
+	// they are not resolved again after a restart.
+	private boolean PersistResults = true;
+
 	public static final String TAG = "Main";
 
+	// preview size the frames are scanned at. Worker thread only.
 	private int preview_width;
 	private int preview_height;
+	// preview size found on the camera thread, as (width << 32 | height),
+	// until the worker applies it. 0 if none.
+	private final AtomicLong new_size = new AtomicLong(0);
 	private Scanner scanner;
 	private ScannerSession session;
+	private ParallelScanner parallel_scanner = null;
+	private FrameRecorder recorder = null;
 	private Overlay overlay;
-	private Bundle status;
-	private Result _result = null;
+	private ScanStatus status;
+	private ScanDispatcher dispatcher;
+	private ScanRegion region = new ScanRegion();
+	private SharpnessGate sharpness = new SharpnessGate();
+	private LumaPyramid pyramid = new LumaPyramid(1);
+	private ResultConsensus consensus;
+	private ResultCache cache = ResultCache.get();
+	private PipelineMetrics metrics = PipelineMetrics.get();
+	private ScanGovernor governor = new ScanGovernor(Clock.SYSTEM);
+	private SceneDetector scene = new SceneDetector();
+	private ContrastStretcher contrast = new ContrastStretcher();
+	// `Clock.SYSTEM` time at which the scan of the current frame started.
+	private volatile long frame_start = 0;
+	private Telemetry telemetry = Telemetry.get();
+	// telemetry session, and `Clock.SYSTEM` time at which it started.
+	private int telemetry_session = 0;
+	private long session_start = 0;
+	private boolean first_result = false;
+	// `System.nanoTime()` at which the current scan started.
+	private volatile long scan_start = 0;
+	// frame being scanned, and pyramid level it is currently scanned at.
+	private byte[] frame = null;
+	private int frame_orientation = 0;
+	private volatile int scan_level = 0;
 
 	@Override
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 		setContentView(R.layout.main);
+		region.setCentered(ScanRegionSize);
+		consensus = new ResultConsensus(ResultVotes, ResultWindow);
 	}
 
 	@Override
@@ -46,36 +131,80 @@ public class ScanActivity extends Activity implements ScannerSession.ScanListene
 		overlay = (Overlay) findViewById(R.id.overlay);
 		overlay.init();
 		OrientationListener.init(this);
-		status = new Bundle();
+		metrics.reset();
+		pyramid.reset();
+		governor.reset();
+		scene.reset();
+		telemetry.start(new File(getFilesDir(), "telemetry.bin"));
+		telemetry_session = telemetry.beginSession();
+		session_start = Clock.SYSTEM.now();
+		first_result = false;
+		if (PersistResults && cache.size() == 0) cache.loadInBackground(cacheFile());
+		status = new ScanStatus();
+		status.invalidate();
 		OrientationListener.get().enable();
 		SurfaceView surface = (SurfaceView) findViewById(R.id.preview);
-		boolean camera_success = CameraManager.get().start(this, surface);
-		if (!camera_success) finish();
+		if (RecordFrames) {
+			try {
+				recorder = new FrameRecorder(new File(getFilesDir(), "frames.rec"));
+				CameraManager.get().setRecorder(recorder);
+			} catch (IOException e) {
+				Log.e(TAG, "ERROR: Could not record frames", e);
+			}
+		}
+		CameraManager.get().start(this, surface);
 		try {
 			scanner = Scanner.get();
 			int nb = scanner.count();
 			// get current status
-			status.putBoolean("decode_ean_8", (ScanOptions & Result.Type.EAN8) != 0);
-			status.putBoolean("decode_ean_13", (ScanOptions & Result.Type.EAN13) != 0);
-			status.putBoolean("decode_qrcode", (ScanOptions & Result.Type.QRCODE) != 0);
-			status.putInt("images", nb);
-			status.putBundle("result", null);
+			status.setDecoding((ScanOptions & Result.Type.EAN8) != 0,
+					(ScanOptions & Result.Type.EAN13) != 0,
+					(ScanOptions & Result.Type.QRCODE) != 0);
+			status.setImages(nb);
+			status.clearResult();
 			// notify overlay 
 			overlay.onStatusUpdate(status);
+			status.clearDirty();
 			// non-blocking sync 
 		} catch (MoodstocksError e) {
 			e.log();
 		}
 		session = new ScannerSession(scanner);
 		session.setOptions(ScanOptions);
+		if (ScanInParallel) {
+			parallel_scanner = new ParallelScanner(scanner, ScanOptions);
+		}
+		dispatcher = new ScanDispatcher(this, ScanPolicy, CameraManager.DEFAULT_BUFFERS, metrics);
+		dispatcher.start();
 	}	
 
 	@Override
 	public void onPause() {
 		super.onPause();
+		// stop dispatching first so that no new scan can start
+		// once the current one is cancelled, then wait for the worker.
+		dispatcher.stop();
 		session.scanCancel();
+		if (parallel_scanner != null) parallel_scanner.scanCancel();
+		dispatcher.join();
+		Log.i(TAG, "frames: "+dispatcher.getSubmitted()+" received, "+
+				dispatcher.getProcessed()+" processed, "+dispatcher.getDropped()+" dropped");
+		Log.i(TAG, sharpness.toString());
+		Log.i(TAG, pyramid.toString());
+		Log.i(TAG, governor.toString());
+		Log.i(TAG, scene.toString());
+		Log.i(TAG, contrast.toString());
+		Log.i(TAG, metrics.dump());
+		Log.i(TAG, cache.toString());
+		telemetry.endSession(telemetry_session, metrics.getReceived(), metrics.getScanned());
+		if (PersistResults) cache.saveInBackground(cacheFile());
 		OrientationListener.get().disable();
 		CameraManager.get().stop();
+		if (recorder != null) {
+			CameraManager.get().setRecorder(null);
+			recorder.close();
+			Log.i(TAG, recorder.getFrameCount()+" frames recorded, "+recorder.getDropped()+" dropped");
+		}
 		finish();
 	}
 	
@@ -95,16 +224,133 @@ public class ScanActivity extends Activity implements ScannerSession.ScanListene
 	//------------------------
 	@Override
 	public void onPreviewSizeFound(int w, int h) {
-		this.preview_width = w;
-		this.preview_height = h;
+		/* called on the camera thread while the worker may be scanning:
+		 * the worker applies the new size before its next frame.
+		 */
+		new_size.set((long)w << 32 | h);
+	}
+
+	@Override
+	public float getScreenRatio() {
+		Display display = getWindowManager().getDefaultDisplay();
+		return (float)display.getHeight()/(float)display.getWidth();
+	}
+
+	@Override
+	public void onCameraError() {
+		runOnUiThread(new Runnable() {
+			@Override
+			public void run() {
+				finish();
+			}
+		});
+	}
+
+	// restricts scanning to a rectangle of the preview frames, in preview
+	// coordinates. Must be called before the camera is started.
+	public void setScanRegion(int x, int y, int w, int h) {
+		region.set(x, y, w, h);
+	}
+
+	@Override
+	public void onPreviewFrame(byte[] data) {
+		/* frames are queued according to `ScanPolicy` while the
+		 * camera keeps filling its other buffers.
+		 */
+		metrics.frameReceived();
+		dispatcher.submit(data, OrientationListener.get().getOrientation());
 	}
 
+	//-------------------------
+	// ScanDispatcher.Listener
+	//-------------------------
 	@Override
-	public void onPreviewFrame(byte[] data, Camera camera) {
+	public void onFrame(byte[] data, int orientation) {
+		metrics.record(PipelineMetrics.QUEUE, dispatcher.getFrameTimestamp());
+		long size = new_size.getAndSet(0);
+		if (size != 0) {
+			preview_width = (int)(size >>> 32);
+			preview_height = (int)size;
+			region.layout(preview_width, preview_height);
+			sharpness.reset();
+			scene.reset();
+		}
+		boolean sharp = sharpness.accept(data, region.getX(), region.getY(),
+				region.getWidth(), region.getHeight(), preview_width);
+		CameraManager.get().reportSharpness(sharpness.getLastScore());
+		if (SkipBlurryFrames && !sharp) {
+			// not worth scanning: give it back to the camera.
+			frameDone();
+			return;
+		}
+		if (SkipStillFrames) {
+			int s = scene.check(data, region.getX(), region.getY(),
+					region.getWidth(), region.getHeight(), preview_width);
+			if (s == SceneDetector.SAME) {
+				// nothing new in sight: the last scan still holds, and
+				// its result, if any, is still displayed.
+				frameDone();
+				return;
+			}
+			if (s == SceneDetector.CHANGED) {
+				governor.onSceneChange();
+				CameraManager.get().reportSceneChange();
+			}
+		}
+		if (!governor.shouldScan()) {
+			frameDone();
+			return;
+		}
+		frame_start = Clock.SYSTEM.now();
+		if (NormalizeContrast) {
+			// in place: the buffer goes back to the camera afterwards.
+			contrast.apply(data, region.getX(), region.getY(),
+					region.getWidth(), region.getHeight(), preview_width);
+		}
+		frame = data;
+		frame_orientation = orientation;
+		scan_level = 0;
+		if (CoarseToFine && pyramid.useCoarse()) {
+			scan_level = pyramid.build(data, region.getX(), region.getY(),
+					region.getWidth(), region.getHeight(), preview_width);
+		}
+		scan(scan_level);
+	}
+
+	/* scans the current frame at the given pyramid level. Runs on the
+	 * dispatcher worker thread, never on the camera nor the UI thread.
+	 */
+	private void scan(int level) {
 		/* this is where the offline search/decoding is launched
 		 * using the video frames. 
 		 */
-		session.scan(this, new Image(data, preview_width, preview_height, preview_width, OrientationListener.get().getOrientation()));
+		scan_start = System.nanoTime();
+		Image img;
+		if (level == 0)
+			img = region.image(frame, preview_width, frame_orientation);
+		else
+			img = pyramid.image(level, frame_orientation);
+		if (parallel_scanner != null)
+			parallel_scanner.scan(this, img);
+		else
+			session.scan(this, img);
+	}
+
+	@Override
+	public void onRetry(byte[] data, int orientation) {
+		// the scan at the coarser level missed.
+		scan(scan_level);
+	}
+
+	@Override
+	public void onFrameReleased(byte[] data) {
+		CameraManager.get().releaseFrame(data);
+	}
+
+	// done with the current frame, whether it was scanned or skipped.
+	private void frameDone() {
+		metrics.record(PipelineMetrics.TOTAL, dispatcher.getFrameTimestamp());
+		dispatcher.done();
 	}
 
 	//---------------------
@@ -118,6 +364,27 @@ public class ScanActivity extends Activity implements ScannerSession.ScanListene
 
 	@Override
 	public void onScanComplete(Result result) {
+		metrics.record(PipelineMetrics.SCAN, scan_start);
+		metrics.frameScanned();
+		telemetry.scan(telemetry_session, (System.nanoTime() - scan_start)/1000,
+				result == null ? 0 : result.getType());
+		// the activity is being paused: drop late results.
+		if (!dispatcher.isRunning()) {
+			frameDone();
+			return;
+		}
+		int level = scan_level;
+		pyramid.record(level, result != null);
+		if (result == null && level > 0) {
+			// nothing at this resolution: try the finer level, on the
+			// worker thread rather than the scanner's.
+			scan_level = level - 1;
+			if (!dispatcher.retry()) frameDone();
+			return;
+		}
+		governor.onScan(Clock.SYSTEM.now() - frame_start, result != null);
+		// the frame was scanned: later frames are compared to it.
+		scene.commit();
 		onResult(result);
 	}
 
@@ -128,9 +395,10 @@ public class ScanActivity extends Activity implements ScannerSession.ScanListene
 		 * to be development errors only, and should
 		 * not happen at runtime.
 		 */
+		telemetry.scanError(telemetry_session, e.getErrorCode());
 		if (e.getErrorCode() == MoodstocksError.Code.MISUSE) {
 			e.log();
-			CameraManager.get().requestNewFrame();
+			frameDone();
 		}
 		else {
 			AlertDialog.Builder builder = new AlertDialog.Builder(this);
@@ -146,31 +414,47 @@ public class ScanActivity extends Activity implements ScannerSession.ScanListene
 		}
 	}
 
+	//----------------------
+	// ResultCache.Resolver
+	//----------------------
+	@Override
+	public String resolve(int type, String value) {
+		/* this is where the payload to display is built from the
+		 * result, e.g. by looking up the product it identifies.
+		 * Here we simply display the result value.
+		 */
+		return value;
+	}
+
+	private File cacheFile() {
+		return new File(getFilesDir(), "results.cache");
+	}
+
 	//-----------------
 	// Handles results
 	//-----------------
 	public void onResult(Result result) {
+		// update status only once a new result is confirmed.
+		Result confirmed = consensus.add(result);
 		if (result != null) {
-			// necessary to update status? 
-			boolean update = false;
-			if (_result == null) {
-				update = true;
-			}
-			else if (!_result.equals(result)) {
-				update = true;
+			if (confirmed != null) {
+				int type = confirmed.getType();
+				status.setResult(type, cache.resolve(type, confirmed.getValue(), this));
+				if (!first_result) {
+					first_result = true;
+					telemetry.firstResult(telemetry_session, Clock.SYSTEM.now() - session_start, type);
+				}
 			}
-			// update if required
-			if (update) {
-				_result = result;
-				Bundle r = new Bundle();
-				r.putInt("type", result.getType());
-				r.putString("value", result.getValue());
-				status.putBundle("result", r);
+			if (status.isDirty()) {
 				// notify overlay 
+				long render_start = System.nanoTime();
 				overlay.onStatusUpdate(status);
+				status.clearDirty();
+				metrics.record(PipelineMetrics.RENDER, render_start);
 			}
+			metrics.resultFound();
 		}
-		CameraManager.get().requestNewFrame();
+		frameDone();
 	}
 	
 }
\ No newline at end of file
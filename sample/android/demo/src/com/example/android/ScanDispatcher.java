@@ -0,0 +1,263 @@
+package com.example.android;
+
+/* Schedules preview frames on a dedicated worker thread, one scan at a
+ * time, and decides what to do with frames that arrive while a scan is
+ * in flight.
+ *
+ * A submitted frame belongs to the dispatcher until it is given back
+ * through `Listener.onFrameReleased()`, whether it has been scanned,
+ * dropped by the policy or discarded by `stop()`.
+ */
+public class ScanDispatcher implements Runnable {
+
+	public static final String TAG = "ScanDispatcher";
+
+	//-------------------------
+	// Backpressure policies
+	//-------------------------
+	public static enum Policy {
+		// queue up to `capacity` frames, dropping the oldest one when full.
+		DROP_OLDEST,
+		// only keep the most recent frame.
+		LATEST_WINS,
+		// never drop a queued frame: the camera blocks instead, once
+		// all of its buffers are queued. `submit()` itself never waits,
+		// as it runs on the camera thread: with a capacity below the
+		// number of camera buffers, frames that find the queue full are
+		// handed back straight away.
+		BLOCK
+	}
+
+	public static interface Listener {
+		// called on the worker thread. The scan is considered in
+		// flight until `done()` is called.
+		public void onFrame(byte[] data, int orientation);
+		// called on the worker thread with the frame in flight, after
+		// `retry()`. The scan is still in flight until `done()`.
+		public void onRetry(byte[] data, int orientation);
+		// called when a frame can be handed back to the camera.
+		public void onFrameReleased(byte[] data);
+	}
+
+	private Listener listener;
+	private Policy policy;
+	private PipelineMetrics metrics;
+	private Thread worker = null;
+	private boolean running = false;
+
+	// pending frames, as a circular queue.
+	private byte[][] queue;
+	private int[] orientations;
+	private long[] timestamps;
+	private int head = 0;
+	private int count = 0;
+
+	// frame currently being scanned.
+	private byte[] current = null;
+	private int current_orientation = 0;
+	private long current_timestamp = 0;
+	// true if the current frame must be delivered again.
+	private boolean retry = false;
+
+	// counters
+	private long submitted = 0;
+	private long dropped = 0;
+	private long processed = 0;
+
+	public ScanDispatcher(Listener l, Policy p, int capacity, PipelineMetrics metrics) {
+		super();
+		this.listener = l;
+		this.policy = p;
+		this.metrics = metrics;
+		if (p == Policy.LATEST_WINS || capacity < 1) capacity = 1;
+		this.queue = new byte[capacity][];
+		this.orientations = new int[capacity];
+		this.timestamps = new long[capacity];
+	}
+
+	public synchronized void start() {
+		if (running) return;
+		running = true;
+		worker = new Thread(this, TAG);
+		worker.start();
+	}
+
+	/* stops the worker and gives back every pending frame. A frame still
+	 * being scanned is given back when `done()` is called, if ever: the
+	 * caller is expected to cancel the scan itself, then `join()` the
+	 * worker.
+	 */
+	public void stop() {
+		byte[][] pending;
+		synchronized(this) {
+			if (!running) return;
+			running = false;
+			// a frame waiting for its retry is not being scanned.
+			int n = retry ? count + 1 : count;
+			pending = new byte[n][];
+			for (int i = 0; i < count; ++i) {
+				pending[i] = take();
+			}
+			if (retry) {
+				pending[n-1] = current;
+				current = null;
+				retry = false;
+			}
+			notifyAll();
+		}
+		for (byte[] b : pending) {
+			listener.onFrameReleased(b);
+		}
+	}
+
+	/* waits for the worker to exit after `stop()`, i.e. for the
+	 * `Listener.onFrame()` call in progress, if any, to return.
+	 */
+	public void join() {
+		Thread t;
+		synchronized(this) {
+			t = worker;
+			worker = null;
+		}
+		if (t != null && t != Thread.currentThread()) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	public synchronized boolean isRunning() {
+		return running;
+	}
+
+	/* queues a frame for scanning. Returns false if the frame has been
+	 * handed back straight away. Never blocks.
+	 */
+	public boolean submit(byte[] data, int orientation) {
+		long timestamp = System.nanoTime();
+		byte[] evicted = null;
+		boolean accepted = true;
+		synchronized(this) {
+			++submitted;
+			if (!running || count == queue.length && policy == Policy.BLOCK) {
+				++dropped;
+				evicted = data;
+				accepted = false;
+			}
+			else {
+				if (count == queue.length) {
+					evicted = take();
+					++dropped;
+				}
+				int tail = (head + count) % queue.length;
+				queue[tail] = data;
+				orientations[tail] = orientation;
+				timestamps[tail] = timestamp;
+				++count;
+				notifyAll();
+			}
+		}
+		if (evicted != null) {
+			metrics.frameDropped();
+			listener.onFrameReleased(evicted);
+		}
+		return accepted;
+	}
+
+	/* must be called once the scan of the frame passed to
+	 * `Listener.onFrame()` is over, to release it and move on.
+	 */
+	public void done() {
+		byte[] b;
+		synchronized(this) {
+			b = current;
+			if (b == null) return;
+			current = null;
+			retry = false;
+			++processed;
+			notifyAll();
+		}
+		listener.onFrameReleased(b);
+	}
+
+	/* delivers the frame in flight again through `Listener.onRetry()`,
+	 * on the worker thread, e.g. to scan it another way. Returns false
+	 * if there is no frame in flight.
+	 */
+	public synchronized boolean retry() {
+		if (current == null || !running) return false;
+		retry = true;
+		notifyAll();
+		return true;
+	}
+
+	// `System.nanoTime()` at which the frame being scanned was submitted.
+	public synchronized long getFrameTimestamp() {
+		return current_timestamp;
+	}
+
+	//----------
+	// Counters
+	//----------
+	public synchronized long getSubmitted() {
+		return submitted;
+	}
+
+	public synchronized long getDropped() {
+		return dropped;
+	}
+
+	public synchronized long getProcessed() {
+		return processed;
+	}
+
+	//----------
+	// Runnable
+	//----------
+	@Override
+	public void run() {
+		while (true) {
+			byte[] b;
+			int orientation;
+			boolean again;
+			synchronized(this) {
+				while (running && !retry && (count == 0 || current != null)) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (!running) return;
+				again = retry;
+				if (again) {
+					retry = false;
+					b = current;
+					orientation = current_orientation;
+				}
+				else {
+					orientation = orientations[head];
+					current_timestamp = timestamps[head];
+					b = take();
+					current = b;
+					current_orientation = orientation;
+				}
+				notifyAll();
+			}
+			if (again) listener.onRetry(b, orientation);
+			else listener.onFrame(b, orientation);
+		}
+	}
+
+	// pops the oldest pending frame. Must hold the lock.
+	private byte[] take() {
+		byte[] b = queue[head];
+		queue[head] = null;
+		head = (head + 1) % queue.length;
+		--count;
+		return b;
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.example.android;
+
+/* Decides which frames are worth scanning from the measured scan
+ * latency and the recent results, so that the scanner does not pin a
+ * core when there is nothing to find:
+ *
+ * - for BURST ms after a scene change or a result, frames are scanned
+ *   as fast as allowed below (burst),
+ * - once the scene is static and nothing is found, the delay between
+ *   the starts of two scans doubles with each scan that finds nothing,
+ *   from at least MIN_IDLE_INTERVAL up to MAX_INTERVAL (idle),
+ * - in any case scanning keeps the scanning thread busy at most
+ *   MAX_DUTY of the time, so slow devices are never driven flat out.
+ *
+ * The clock is abstracted so that the policy can run without a camera.
+ */
+public class ScanGovernor {
+
+	public static final String TAG = "ScanGovernor";
+
+	// time spent scanning every frame after a scene change or a result.
+	public static final long BURST = 2000;
+	// first delay between two scans when idle, if scans are fast enough
+	// for the duty cycle not to impose a longer one.
+	public static final long MIN_IDLE_INTERVAL = 50;
+	// longest delay between two scans when idle.
+	public static final long MAX_INTERVAL = 1000;
+	// largest fraction of the time spent scanning.
+	public static final float MAX_DUTY = 0.8f;
+	// weight of a new latency in the average.
+	private static final float ALPHA = 0.2f;
+
+	private Clock clock;
+	private float latency = 0;
+	private boolean has_latency = false;
+	// end of the current burst.
+	private long burst_end = 0;
+	private long last_scan = 0;
+	private long interval = 0;
+
+	private long scans = 0;
+	private long skipped = 0;
+	private long hits = 0;
+
+	public ScanGovernor(Clock clock) {
+		super();
+		this.clock = clock;
+		reset();
+	}
+
+	// forgets the measures and scans at full speed.
+	public synchronized void reset() {
+		has_latency = false;
+		latency = 0;
+		interval = 0;
+		last_scan = clock.now() - MAX_INTERVAL;
+		burst_end = clock.now() + BURST;
+	}
+
+	/* tells whether the frame at hand should be scanned. If so, the scan
+	 * is considered started and `onScan()` must be called once it is over.
+	 */
+	public synchronized boolean shouldScan() {
+		long now = clock.now();
+		if (now - last_scan < interval) {
+			++skipped;
+			return false;
+		}
+		last_scan = now;
+		++scans;
+		return true;
+	}
+
+	// reports the outcome of a scan that lasted `duration` ms.
+	public synchronized void onScan(long duration, boolean found) {
+		latency = has_latency ? latency + ALPHA*(duration - latency) : duration;
+		has_latency = true;
+		long now = clock.now();
+		if (found) {
+			++hits;
+			burst_end = now + BURST;
+		}
+		long min = minInterval();
+		if (now < burst_end) {
+			interval = min;
+		}
+		else {
+			// idle: back off while nothing is found. The interval may be 0
+			// after a burst of fast scans, and would never grow by doubling.
+			long next = Math.max(interval*2, MIN_IDLE_INTERVAL);
+			interval = Math.max(Math.min(next, MAX_INTERVAL), min);
+		}
+	}
+
+	// the thread scans at most MAX_DUTY of the time.
+	private long minInterval() {
+		return (long)(latency/MAX_DUTY);
+	}
+
+	// the scene moved: scan at full speed again.
+	public synchronized void onSceneChange() {
+		burst_end = clock.now() + BURST;
+		interval = minInterval();
+	}
+
+	public synchronized boolean isIdle() {
+		return clock.now() >= burst_end;
+	}
+
+	// average scan latency, in ms.
+	public synchronized float getLatency() {
+		return latency;
+	}
+
+	// current minimum delay between the starts of two scans, in ms.
+	public synchronized long getInterval() {
+		return interval;
+	}
+
+	// scans per second currently aimed at.
+	public synchronized float getTargetRate() {
+		float period = Math.max(latency, interval);
+		return period <= 0 ? 0 : 1000.0f/period;
+	}
+
+	public synchronized long getScans() {
+		return scans;
+	}
+
+	// frames skipped to save work.
+	public synchronized long getSkipped() {
+		return skipped;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return TAG+": "+scans+" scans, "+skipped+" skipped, "+hits+" hits, latency "+
+				latency+" ms, interval "+interval+" ms";
+	}
+
+}
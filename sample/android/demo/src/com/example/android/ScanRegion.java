@@ -0,0 +1,129 @@
+package com.example.android;
+
+import com.moodstocks.android.Image;
+
+/* Region of interest of the NV21 luma plane that is actually scanned,
+ * in preview coordinates (i.e. before the 90 degrees display rotation).
+ *
+ * `Image` addresses the luma plane through a width, height and stride
+ * but has no offset, so only a region anchored at the top-left corner
+ * of the frame is passed as-is, using the preview width as stride. Any
+ * other region, including a centered one, is packed row by row into a
+ * buffer owned by the region, that is only reallocated when the region
+ * grows: this costs one copy of the region per scan, which is cheap
+ * next to decoding the pixels left out (see `RegionBenchmark`).
+ *
+ * The requested rectangle is kept as set, and clipped to each new
+ * preview size by `layout()`.
+ */
+public class ScanRegion {
+
+	public static final String TAG = "ScanRegion";
+
+	// requested rectangle, when not centered.
+	private int req_x = 0;
+	private int req_y = 0;
+	private int req_width = 0;
+	private int req_height = 0;
+	// size of the region as a fraction of the frame, when centered.
+	private float fraction = 1.0f;
+	private boolean centered = true;
+	// region within the current frame.
+	private int x = 0;
+	private int y = 0;
+	private int width = 0;
+	private int height = 0;
+	private byte[] crop = null;
+
+	public ScanRegion() {
+		super();
+	}
+
+	// scans the central `fraction` of the frame in each dimension.
+	public void setCentered(float fraction) {
+		this.fraction = Math.max(0.0f, Math.min(1.0f, fraction));
+		this.centered = true;
+	}
+
+	// scans the given rectangle, clipped to the frame.
+	public void set(int x, int y, int w, int h) {
+		this.req_x = x;
+		this.req_y = y;
+		this.req_width = w;
+		this.req_height = h;
+		this.centered = false;
+	}
+
+	/* computes the region for a frame of size `frame_w` x `frame_h`.
+	 * Must be called whenever the preview size changes.
+	 */
+	public void layout(int frame_w, int frame_h) {
+		if (centered) {
+			width = Math.round(frame_w*fraction);
+			height = Math.round(frame_h*fraction);
+			x = (frame_w - width)/2;
+			y = (frame_h - height)/2;
+		}
+		else {
+			x = Math.max(0, Math.min(req_x, frame_w));
+			y = Math.max(0, Math.min(req_y, frame_h));
+			width = Math.min(req_width - (x - req_x), frame_w - x);
+			height = Math.min(req_height - (y - req_y), frame_h - y);
+		}
+		if (width <= 0 || height <= 0) {
+			// degenerate region: scan the whole frame.
+			x = 0;
+			y = 0;
+			width = frame_w;
+			height = frame_h;
+		}
+	}
+
+	public boolean isAnchored() {
+		return x == 0 && y == 0;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/* builds the query image for the region of `data`, a frame whose luma
+	 * rows are `stride` bytes apart. The returned image may reference a
+	 * buffer owned by the region, which is overwritten by the next call.
+	 */
+	public Image image(byte[] data, int stride, int orientation) {
+		if (isAnchored()) {
+			return new Image(data, width, height, stride, orientation);
+		}
+		return new Image(pack(data, stride), width, height, width, orientation);
+	}
+
+	// copies the region rows into `crop`, `width` bytes apart.
+	public byte[] pack(byte[] data, int stride) {
+		int len = width*height;
+		if (crop == null || crop.length < len) {
+			crop = new byte[len];
+		}
+		int src = y*stride + x;
+		int dst = 0;
+		for (int r = 0; r < height; ++r) {
+			System.arraycopy(data, src, crop, dst, width);
+			src += stride;
+			dst += width;
+		}
+		return crop;
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.example.android;
+
+/* Status of the scanner as displayed by the overlay. Each setter only
+ * marks its field dirty when the value actually changes, so that
+ * listeners can refresh just what changed and the model can be reused
+ * across updates instead of rebuilding a `Bundle` each time.
+ */
+public class ScanStatus {
+
+	public static final String TAG = "ScanStatus";
+
+	// dirty flags
+	public static final int DECODE = 1;
+	public static final int IMAGES = 2;
+	public static final int RESULT = 4;
+
+	private boolean decode_ean_8 = false;
+	private boolean decode_ean_13 = false;
+	private boolean decode_qrcode = false;
+	private int images = 0;
+	private boolean has_result = false;
+	private int result_type = 0;
+	private String result_value = null;
+	private int dirty = 0;
+
+	public ScanStatus() {
+		super();
+	}
+
+	public void setDecoding(boolean ean8, boolean ean13, boolean qrcode) {
+		if (ean8 != decode_ean_8 || ean13 != decode_ean_13 || qrcode != decode_qrcode) {
+			decode_ean_8 = ean8;
+			decode_ean_13 = ean13;
+			decode_qrcode = qrcode;
+			dirty |= DECODE;
+		}
+	}
+
+	public void setImages(int count) {
+		if (count != images) {
+			images = count;
+			dirty |= IMAGES;
+		}
+	}
+
+	public void setResult(int type, String value) {
+		if (!has_result || type != result_type || !equal(value, result_value)) {
+			has_result = true;
+			result_type = type;
+			result_value = value;
+			dirty |= RESULT;
+		}
+	}
+
+	public void clearResult() {
+		if (has_result) {
+			has_result = false;
+			result_type = 0;
+			result_value = null;
+			dirty |= RESULT;
+		}
+	}
+
+	public boolean isDecodingEan8() {
+		return decode_ean_8;
+	}
+
+	public boolean isDecodingEan13() {
+		return decode_ean_13;
+	}
+
+	public boolean isDecodingQrcode() {
+		return decode_qrcode;
+	}
+
+	public int getImages() {
+		return images;
+	}
+
+	public boolean hasResult() {
+		return has_result;
+	}
+
+	public int getResultType() {
+		return result_type;
+	}
+
+	public String getResultValue() {
+		return result_value;
+	}
+
+	public boolean isDirty(int field) {
+		return (dirty & field) != 0;
+	}
+
+	public boolean isDirty() {
+		return dirty != 0;
+	}
+
+	// marks every field dirty, e.g. for a listener that has not
+	// displayed anything yet.
+	public void invalidate() {
+		dirty = DECODE | IMAGES | RESULT;
+	}
+
+	public void clearDirty() {
+		dirty = 0;
+	}
+
+	private static boolean equal(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+}
@@ -0,0 +1,232 @@
+package com.example.android;
+
+import android.content.Context;
+import android.os.Handler;
+import android.util.Log;
+
+import com.moodstocks.android.*;
+
+/* Opens the scanner on a background thread, so that launching the app
+ * does not wait for the on-disk database to be loaded.
+ *
+ * Opening also reads the number of indexed images, which warms the
+ * database up before the first scan. The outcome is delivered to the
+ * listener through the given handler, i.e. on the UI thread for a
+ * handler created there. Callers that need the scanner synchronously can
+ * wait for it with `await()`.
+ *
+ *   IDLE -> OPENING -> READY or FAILED, FAILED -> OPENING (retry)
+ *   any state -> CLOSED (final)
+ */
+public class ScannerLoader implements Runnable {
+
+	public static final String TAG = "ScannerLoader";
+
+	public static final int IDLE = 0;
+	public static final int OPENING = 1;
+	public static final int READY = 2;
+	public static final int FAILED = 3;
+	public static final int CLOSED = 4;
+
+	public static interface Listener {
+		// `count` is the number of images in the database.
+		public void onScannerReady(Scanner scanner, int count);
+		public void onScannerFailed(MoodstocksError e);
+	}
+
+	public static interface Factory {
+		public Scanner get() throws MoodstocksError;
+	}
+
+	public static final Factory SDK = new Factory() {
+		@Override
+		public Scanner get() throws MoodstocksError {
+			return Scanner.get();
+		}
+	};
+
+	private Handler handler;
+	private Clock clock;
+	private Factory factory = SDK;
+	private Context context = null;
+	private String filename = null;
+	private Listener listener = null;
+	private int state = IDLE;
+	private Scanner scanner = null;
+	private int count = 0;
+	private MoodstocksError error = null;
+	// incremented by each `open()`, so that the outcome of a previous
+	// attempt is not delivered.
+	private int attempt = 0;
+
+	// timings, in ms.
+	private long open_time = 0;
+	private long warmup_time = 0;
+
+	public ScannerLoader(Handler handler, Clock clock) {
+		super();
+		this.handler = handler;
+		this.clock = clock;
+	}
+
+	// scanner to open: the SDK one by default.
+	public synchronized void setFactory(Factory f) {
+		factory = f == null ? SDK : f;
+	}
+
+	/* starts opening the scanner database `filename`. `l` is notified
+	 * once it is ready or failed to open. After a failure, opens it
+	 * again.
+	 */
+	public synchronized void open(Context ctx, String filename, Listener l) {
+		if (state != IDLE && state != FAILED) return;
+		this.context = ctx.getApplicationContext();
+		this.filename = filename;
+		this.listener = l;
+		error = null;
+		++attempt;
+		state = OPENING;
+		new Thread(this, TAG).start();
+	}
+
+	/* closes the scanner. If it is still being opened, it is closed as
+	 * soon as it is and the listener is not notified.
+	 */
+	public void close() {
+		Scanner s;
+		synchronized(this) {
+			int previous = state;
+			state = CLOSED;
+			listener = null;
+			notifyAll();
+			// still opening: the loader thread takes care of it.
+			if (previous == OPENING) return;
+			s = scanner;
+			scanner = null;
+		}
+		if (s != null) close(s);
+	}
+
+	/* waits up to `timeout` ms for the scanner to be opened, and returns
+	 * the resulting state.
+	 */
+	public synchronized int await(long timeout) throws InterruptedException {
+		long end = clock.now() + timeout;
+		long left = timeout;
+		while (state == OPENING && left > 0) {
+			wait(left);
+			left = end - clock.now();
+		}
+		return state;
+	}
+
+	public synchronized int getState() {
+		return state;
+	}
+
+	public synchronized boolean isReady() {
+		return state == READY;
+	}
+
+	// the opened scanner, or null if it is not ready.
+	public synchronized Scanner getScanner() {
+		return state == READY ? scanner : null;
+	}
+
+	// number of images in the database when it was opened.
+	public synchronized int getCount() {
+		return count;
+	}
+
+	// the error that occurred while opening, if any.
+	public synchronized MoodstocksError getError() {
+		return error;
+	}
+
+	// time spent opening the database, in ms.
+	public synchronized long getOpenTime() {
+		return open_time;
+	}
+
+	// time spent warming up the database once open, in ms.
+	public synchronized long getWarmupTime() {
+		return warmup_time;
+	}
+
+	//----------
+	// Runnable
+	//----------
+	@Override
+	public void run() {
+		Scanner s = null;
+		int n = 0;
+		MoodstocksError err = null;
+		final int current;
+		Factory f;
+		synchronized(this) {
+			current = attempt;
+			f = factory;
+		}
+		long start = clock.now();
+		long opened = start;
+		try {
+			s = f.get();
+			/* Open the scanner, necessary to perform any operation using it.
+			 * This step also checks at runtime that the device is compatible.
+			 * If the device is not compatible, it will throw a RuntimeException
+			 * and crash the app.
+			 */
+			s.open(context, filename);
+			opened = clock.now();
+			n = s.count();
+		} catch (MoodstocksError e) {
+			err = e;
+		}
+		long end = clock.now();
+		final Listener l;
+		synchronized(this) {
+			open_time = opened - start;
+			warmup_time = err == null ? end - opened : 0;
+			if (state == CLOSED) {
+				// closed while opening.
+				if (s != null) close(s);
+				return;
+			}
+			scanner = s;
+			count = n;
+			error = err;
+			state = err == null ? READY : FAILED;
+			l = listener;
+			notifyAll();
+		}
+		Log.i(TAG, "scanner "+(err == null ? "opened" : "failed to open")+" in "+
+				open_time+" ms, warmed up in "+warmup_time+" ms");
+		if (l == null) return;
+		final Scanner ready = s;
+		final int images = n;
+		final MoodstocksError failure = err;
+		handler.post(new Runnable() {
+			@Override
+			public void run() {
+				synchronized(ScannerLoader.this) {
+					// closed or opened again in the meantime.
+					if (state == CLOSED || attempt != current) return;
+				}
+				if (failure == null)
+					l.onScannerReady(ready, images);
+				else
+					l.onScannerFailed(failure);
+			}
+		});
+	}
+
+	private static void close(Scanner s) {
+		try {
+			/* you must close the scanner before exiting */
+			s.close();
+		} catch (MoodstocksError e) {
+			e.log();
+		}
+	}
+
+}
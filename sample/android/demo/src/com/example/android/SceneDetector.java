@@ -0,0 +1,184 @@
+package com.example.android;
+
+/* Tells whether a frame differs enough from the last scanned one to be
+ * worth scanning again, e.g. to skip the near-identical frames seen
+ * while the phone lies still over a product or a table.
+ *
+ * Frames are compared through a signature made of the mean luma of
+ * GRID x GRID blocks, sampled every `step` pixels. The mean of the whole
+ * signature is subtracted before comparing, so that exposure changes
+ * alone do not count as a scene change. The difference is the mean
+ * absolute difference between blocks, from 0 to 255. Nothing is
+ * allocated once constructed.
+ *
+ * A checked frame only becomes the reference once `commit()` is called,
+ * i.e. once it has actually been scanned: a changed frame whose scan is
+ * skipped for another reason does not hide the change from the next one.
+ */
+public class SceneDetector {
+
+	public static final String TAG = "SceneDetector";
+
+	// outcomes of `check()`
+	// the frame looks like the reference: its scan can be skipped.
+	public static final int SAME = 0;
+	// the scene changed: the frame should be scanned.
+	public static final int CHANGED = 1;
+	// the scene did not change but the reference is too old.
+	public static final int REFRESH = 2;
+
+	public static final int GRID = 8;
+	// block difference above which the scene is considered changed.
+	public static final float DEFAULT_THRESHOLD = 6.0f;
+	// frames skipped in a row at most, so that slow changes are caught.
+	public static final int DEFAULT_MAX_SKIPS = 15;
+	public static final int DEFAULT_STEP = 4;
+
+	private float threshold;
+	private int max_skips;
+	private int step;
+
+	private int[] current = new int[GRID*GRID];
+	private int[] reference = new int[GRID*GRID];
+	private boolean has_reference = false;
+	// true if `current` holds the signature of the last checked frame.
+	private boolean has_current = false;
+	private int skips = 0;
+	private float difference = 0;
+
+	private long same = 0;
+	private long changed = 0;
+	private long refreshed = 0;
+
+	public SceneDetector() {
+		this(DEFAULT_THRESHOLD, DEFAULT_MAX_SKIPS, DEFAULT_STEP);
+	}
+
+	public SceneDetector(float threshold, int max_skips, int step) {
+		super();
+		this.threshold = threshold;
+		this.max_skips = max_skips;
+		this.step = step < 1 ? 1 : step;
+	}
+
+	/* compares the `w` x `h` luma rectangle at (`x`,`y`) of `data`, whose
+	 * rows are `stride` bytes apart, with the reference frame. Returns
+	 * SAME, CHANGED or REFRESH.
+	 */
+	public synchronized int check(byte[] data, int x, int y, int w, int h, int stride) {
+		signature(data, x, y, w, h, stride, step, current);
+		has_current = true;
+		int outcome;
+		if (!has_reference) {
+			difference = 255;
+			outcome = CHANGED;
+		}
+		else {
+			difference = distance(current, reference);
+			if (difference >= threshold) outcome = CHANGED;
+			else if (skips >= max_skips) outcome = REFRESH;
+			else outcome = SAME;
+		}
+		if (outcome == SAME) {
+			++skips;
+			++same;
+		}
+		else if (outcome == CHANGED) {
+			++changed;
+		}
+		else {
+			++refreshed;
+		}
+		return outcome;
+	}
+
+	/* makes the last checked frame the reference, once it has been
+	 * scanned. Does nothing if no frame was checked since.
+	 */
+	public synchronized void commit() {
+		if (!has_current) return;
+		int[] t = reference;
+		reference = current;
+		current = t;
+		has_reference = true;
+		has_current = false;
+		skips = 0;
+	}
+
+	/* writes into `sig` the mean luma of the GRID x GRID blocks of the
+	 * given rectangle, minus the mean of all blocks.
+	 */
+	public static void signature(byte[] data, int x, int y, int w, int h, int stride, int step, int[] sig) {
+		int total = 0;
+		for (int by = 0; by < GRID; ++by) {
+			int y0 = y + by*h/GRID;
+			int y1 = y + (by+1)*h/GRID;
+			for (int bx = 0; bx < GRID; ++bx) {
+				int x0 = x + bx*w/GRID;
+				int x1 = x + (bx+1)*w/GRID;
+				int sum = 0;
+				int n = 0;
+				for (int j = y0; j < y1; j += step) {
+					int row = j*stride;
+					for (int i = x0; i < x1; i += step) {
+						sum += data[row + i] & 0xff;
+						++n;
+					}
+				}
+				int mean = n == 0 ? 0 : sum/n;
+				sig[by*GRID + bx] = mean;
+				total += mean;
+			}
+		}
+		int mean = total/(GRID*GRID);
+		for (int i = 0; i < GRID*GRID; ++i) {
+			sig[i] -= mean;
+		}
+	}
+
+	// mean absolute difference between two signatures.
+	public static float distance(int[] a, int[] b) {
+		int sum = 0;
+		for (int i = 0; i < a.length; ++i) {
+			sum += Math.abs(a[i] - b[i]);
+		}
+		return (float)sum/a.length;
+	}
+
+	// forgets the reference, e.g. when the preview size changes.
+	public synchronized void reset() {
+		has_reference = false;
+		has_current = false;
+		skips = 0;
+	}
+
+	// difference between the last checked frame and the reference.
+	public synchronized float getLastDifference() {
+		return difference;
+	}
+
+	public synchronized long getSkipped() {
+		return same;
+	}
+
+	public synchronized long getChanged() {
+		return changed;
+	}
+
+	public synchronized long getRefreshed() {
+		return refreshed;
+	}
+
+	// fraction of the checked frames whose scan was skipped.
+	public synchronized float getSkipRate() {
+		long n = same + changed + refreshed;
+		return n == 0 ? 0 : (float)same/n;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return TAG+": "+same+" skipped, "+changed+" changed, "+refreshed+" refreshed ("+
+				Math.round(getSkipRate()*100)+"% skipped)";
+	}
+
+}
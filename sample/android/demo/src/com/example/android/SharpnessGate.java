@@ -0,0 +1,124 @@
+package com.example.android;
+
+/* Cheap focus metric used to skip blurry frames before they reach the
+ * scanner, e.g. while the camera is refocusing.
+ *
+ * The score is the mean squared luma gradient measured on a subsampled
+ * grid. A frame is rejected when its score falls below a fraction of
+ * the running average score, so the threshold follows the scene and
+ * the device instead of being hard-coded. Only accepted frames feed the
+ * average, so that a long blur does not drag the threshold down with
+ * it; after MAX_REJECTS rejections in a row the average is measured
+ * again, in case the scene itself became less textured. Nothing is
+ * allocated.
+ */
+public class SharpnessGate {
+
+	public static final String TAG = "SharpnessGate";
+
+	// distance in pixels between two samples, in each dimension.
+	public static final int DEFAULT_STEP = 4;
+	// frames scoring below this fraction of the average are rejected.
+	public static final float DEFAULT_RATIO = 0.6f;
+	// weight of a new score in the running average.
+	private static final float ALPHA = 0.1f;
+	// frames always accepted while the average settles.
+	private static final int WARMUP = 5;
+	// rejections in a row after which the average is measured again.
+	public static final int MAX_REJECTS = 15;
+
+	private int step;
+	private float ratio;
+	private float average = 0;
+	private float last = 0;
+	private int seen = 0;
+	private int rejects = 0;
+
+	private long hits = 0;
+	private long misses = 0;
+
+	public SharpnessGate() {
+		this(DEFAULT_STEP, DEFAULT_RATIO);
+	}
+
+	public SharpnessGate(int step, float ratio) {
+		super();
+		this.step = step < 1 ? 1 : step;
+		this.ratio = ratio;
+	}
+
+	/* mean squared gradient of the `w` x `h` luma rectangle at (`x`,`y`)
+	 * of `data`, whose rows are `stride` bytes apart.
+	 */
+	public static float measure(byte[] data, int x, int y, int w, int h, int stride, int step) {
+		long sum = 0;
+		int n = 0;
+		int x_end = x + w - 1;
+		int y_end = y + h - 1;
+		for (int j = y; j < y_end; j += step) {
+			int row = j*stride;
+			for (int i = x; i < x_end; i += step) {
+				int p = row + i;
+				int c = data[p] & 0xff;
+				int dx = (data[p+1] & 0xff) - c;
+				int dy = (data[p+stride] & 0xff) - c;
+				sum += dx*dx + dy*dy;
+				++n;
+			}
+		}
+		return n == 0 ? 0 : (float)sum/n;
+	}
+
+	/* scores the given region and tells whether it is worth scanning. */
+	public synchronized boolean accept(byte[] data, int x, int y, int w, int h, int stride) {
+		last = measure(data, x, y, w, h, stride, step);
+		boolean pass = seen < WARMUP || last >= ratio*average;
+		if (pass) {
+			average = seen == 0 ? last : average + ALPHA*(last - average);
+			++seen;
+			rejects = 0;
+			++hits;
+		}
+		else {
+			++misses;
+			if (++rejects >= MAX_REJECTS) {
+				// the scene may have changed rather than the focus.
+				average = 0;
+				seen = 0;
+				rejects = 0;
+			}
+		}
+		return pass;
+	}
+
+	// forgets the running average, e.g. when the preview size changes.
+	public synchronized void reset() {
+		average = 0;
+		seen = 0;
+		rejects = 0;
+	}
+
+	public synchronized float getLastScore() {
+		return last;
+	}
+
+	public synchronized float getAverageScore() {
+		return average;
+	}
+
+	// frames let through.
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	// frames rejected as blurry.
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return TAG+": "+hits+" passed, "+misses+" rejected, average score "+average;
+	}
+
+}
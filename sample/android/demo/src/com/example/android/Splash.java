@@ -7,35 +7,68 @@ import android.widget.ProgressBar;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 
-public class Splash extends RelativeLayout {
+public class Splash extends RelativeLayout implements ProgressThrottle.Listener {
 	
 	public static final String TAG = "Splash";
 	public boolean progressing = false;
+	// views are looked up on first use.
+	private ProgressBar infinite = null;
+	private ProgressBar progress = null;
+	private TextView text = null;
+	// "<current> / <total>" label, rewritten in place on each update:
+	// the text view copies what it is given.
+	private final StringBuilder label = new StringBuilder(32);
 
 	public Splash(Context context, AttributeSet attrs) {
 		super(context, attrs);
 	}
+
+	private void findViews() {
+		if (text == null) {
+			infinite = (ProgressBar) findViewById(R.id.infinite);
+			progress = (ProgressBar) findViewById(R.id.progress);
+			text = (TextView) findViewById(R.id.splash_text);
+		}
+	}
 	
 	public void show(boolean b) {
+		findViews();
 		int v = b ? View.VISIBLE : View.INVISIBLE;
-		((Splash) findViewById(R.id.splash)).setVisibility(v);
-		((ProgressBar) findViewById(R.id.infinite)).setVisibility(v);
+		setVisibility(v);
+		infinite.setVisibility(v);
 		v = b ? View.INVISIBLE : View.VISIBLE;
-		((ProgressBar) findViewById(R.id.progress)).setVisibility(v);
-		if (b) ((TextView) findViewById(R.id.splash_text)).setText(R.string.initializing);
+		progress.setVisibility(v);
+		if (b) text.setText(R.string.initializing);
 	}
 	
 	public void update(int total, int current) {
+		findViews();
 		if (!progressing) {
-			ProgressBar bar = (ProgressBar) findViewById(R.id.progress);
 			progressing = true;
-			((ProgressBar) findViewById(R.id.infinite)).setVisibility(View.INVISIBLE);
-			bar.setVisibility(View.VISIBLE);
-			bar.setMax(total);
+			infinite.setVisibility(View.INVISIBLE);
+			progress.setVisibility(View.VISIBLE);
+			progress.setMax(total);
 		}
-		((ProgressBar) findViewById(R.id.progress)).setProgress(current);
-		((TextView) findViewById(R.id.splash_text)).setText(current+" / "+total);
+		progress.setProgress(current);
+		label.setLength(0);
+		text.setText(progressLabel(total, current, label));
+	}
+
+	public static String progressLabel(int total, int current) {
+		return current+" / "+total;
+	}
+
+	// appends "<current> / <total>" to `dst`, and returns it.
+	public static StringBuilder progressLabel(int total, int current, StringBuilder dst) {
+		return dst.append(current).append(" / ").append(total);
 	}
 
+	//---------------------------
+	// ProgressThrottle.Listener
+	//---------------------------
+	@Override
+	public void onProgress(int total, int current) {
+		update(total, current);
+	}
 
 }
@@ -0,0 +1,164 @@
+package com.example.android;
+
+import java.util.Random;
+
+import com.moodstocks.android.MoodstocksError;
+import com.moodstocks.android.Scanner;
+
+import android.content.SharedPreferences;
+
+/* Decides when to synchronize the scanner, and remembers on disk when
+ * the last sync succeeded and how many have failed since, so that the
+ * policy survives process restarts:
+ *
+ * - after a successful sync, the next one is due after INTERVAL plus a
+ *   random jitter, so that devices launched at the same time do not all
+ *   hit the backend together,
+ * - after a network failure (NOCONN, SLOWCONN, TIMEOUT) the delay grows
+ *   exponentially from MIN_BACKOFF up to MAX_BACKOFF, with jitter,
+ * - a sync is never started while another one is running, and a due
+ *   sync waits for a network connection rather than failing (and backing
+ *   off) for lack of one,
+ * - the next sync is never due more than INTERVAL + JITTER from now,
+ *   even if the wall clock was set back since it was scheduled.
+ *
+ * The sync source and the clock are abstracted so that the policy can
+ * be exercised without the backend.
+ */
+public class SyncScheduler implements Scanner.SyncListener {
+
+	public static final String TAG = "SyncScheduler";
+
+	public static interface Source {
+		public boolean isSyncing();
+		public boolean isConnected();
+		public void sync(Scanner.SyncListener l);
+	}
+
+	// delay between two successful syncs.
+	public static final long INTERVAL = 86400000; /* a day in ms */
+	// up to this much is added to INTERVAL.
+	public static final long JITTER = 3600000; /* an hour in ms */
+	public static final long MIN_BACKOFF = 60000; /* a minute in ms */
+	public static final long MAX_BACKOFF = 21600000; /* 6 hours in ms */
+
+	private static final String LAST_SUCCESS = "last_success";
+	private static final String NEXT_SYNC = "next_sync";
+	private static final String FAILURES = "failures";
+	private static final String LAST_ERROR = "last_error";
+
+	private Source source;
+	private SharedPreferences prefs;
+	private Clock clock;
+	private Random random;
+	private Scanner.SyncListener listener = null;
+
+	public SyncScheduler(Source source, SharedPreferences prefs, Clock clock, Random random) {
+		super();
+		this.source = source;
+		this.prefs = prefs;
+		this.clock = clock;
+		this.random = random;
+	}
+
+	/* starts a sync if one is due and the network is up. Returns true if
+	 * a sync was started.
+	 */
+	public boolean syncIfDue(Scanner.SyncListener l) {
+		if (clock.now() < getNextSync() || !source.isConnected()) return false;
+		return syncNow(l);
+	}
+
+	/* starts a sync unless one is already running, whatever the
+	 * schedule (e.g. on user request, or when the database is empty).
+	 */
+	public boolean syncNow(Scanner.SyncListener l) {
+		if (source.isSyncing()) return false;
+		listener = l;
+		source.sync(this);
+		return true;
+	}
+
+	// wall-clock time of the last successful sync, 0 if none.
+	public long getLastSuccess() {
+		return prefs.getLong(LAST_SUCCESS, 0);
+	}
+
+	// wall-clock time from which a sync is due.
+	public long getNextSync() {
+		long next = prefs.getLong(NEXT_SYNC, 0);
+		// stored before the clock was set back: bring it closer, for good.
+		long latest = clock.now() + INTERVAL + JITTER;
+		if (next > latest) {
+			next = latest;
+			prefs.edit().putLong(NEXT_SYNC, next).commit();
+		}
+		return next;
+	}
+
+	// failed syncs since the last successful one.
+	public int getFailures() {
+		return prefs.getInt(FAILURES, 0);
+	}
+
+	// error code of the last failed sync.
+	public int getLastError() {
+		return prefs.getInt(LAST_ERROR, MoodstocksError.Code.SUCCESS);
+	}
+
+	// random delay in [d/2, d[, so that retries spread out.
+	private long jittered(long d) {
+		return d/2 + (long)(random.nextDouble()*(d/2));
+	}
+
+	private static boolean isTransient(int code) {
+		return code == MoodstocksError.Code.NOCONN ||
+				code == MoodstocksError.Code.SLOWCONN ||
+				code == MoodstocksError.Code.TIMEOUT;
+	}
+
+	//----------------------
+	// Scanner.SyncListener
+	//----------------------
+
+	@Override
+	public void onSyncStart() {
+		if (listener != null) listener.onSyncStart();
+	}
+
+	@Override
+	public void onSyncComplete() {
+		long now = clock.now();
+		prefs.edit()
+			.putLong(LAST_SUCCESS, now)
+			.putLong(NEXT_SYNC, now + INTERVAL + (long)(random.nextDouble()*JITTER))
+			.putInt(FAILURES, 0)
+			.putInt(LAST_ERROR, MoodstocksError.Code.SUCCESS)
+			.commit();
+		if (listener != null) listener.onSyncComplete();
+	}
+
+	@Override
+	public void onSyncFailed(MoodstocksError e) {
+		int code = e.getErrorCode();
+		int failures = getFailures() + 1;
+		long backoff = MAX_BACKOFF;
+		if (isTransient(code)) {
+			// MIN_BACKOFF * 2^(failures-1), without overflowing.
+			int shift = Math.min(failures - 1, 30);
+			backoff = Math.min(MIN_BACKOFF << shift, MAX_BACKOFF);
+		}
+		prefs.edit()
+			.putLong(NEXT_SYNC, clock.now() + jittered(backoff))
+			.putInt(FAILURES, failures)
+			.putInt(LAST_ERROR, code)
+			.commit();
+		if (listener != null) listener.onSyncFailed(e);
+	}
+
+	@Override
+	public void onSyncProgress(int total, int current) {
+		if (listener != null) listener.onSyncProgress(total, current);
+	}
+
+}
@@ -0,0 +1,292 @@
+package com.example.android;
+
+import java.util.Random;
+
+import android.view.SurfaceHolder;
+
+/* Headless `CameraSource`, to run the capture/scan loop where there is
+ * no camera (e.g. soak tests on a plain Linux box).
+ *
+ * Frames are produced on a dedicated thread at a configurable rate with
+ * random jitter. Their content is a moving pattern, or the frames of a
+ * recording when a `FrameReplayer` of the right size is set. The
+ * camera contract is honored: buffered frames are only delivered into
+ * buffers given through `addCallbackBuffer()` and are dropped (and
+ * counted) otherwise, preview sizes can be declared broken to exercise
+ * the size check of `CameraManager`, and autofocus completes
+ * asynchronously after a configurable delay.
+ */
+public class SyntheticCameraSource implements CameraSource, Runnable {
+
+	public static final String TAG = "SyntheticCameraSource";
+
+	private final int[] sizes;
+	private final long period; /* in ns */
+	private final long jitter; /* in ns */
+	private final Random random = new Random(0);
+
+	private int width = 0;
+	private int height = 0;
+	private int broken_width = -1;
+	private int broken_height = -1;
+	private FrameReplayer replayer = null;
+
+	// buffers given through `addCallbackBuffer()`, as a circular queue
+	// that only grows, so that queuing a buffer does not allocate.
+	private byte[][] buffers = new byte[4][];
+	private int first = 0;
+	private int nb_buffers = 0;
+	private FrameCallback frame_callback = null;
+	private boolean buffered = false;
+	private Thread thread = null;
+	private boolean running = false;
+	private int frame_index = 0;
+
+	private FocusCallback focus_callback = null;
+	private long focus_due = -1;
+	private long focus_delay = 300; /* in ms */
+	private boolean focus_success = true;
+
+	private long delivered = 0;
+	private long dropped = 0;
+
+	/* `sizes` are the supported preview sizes, as (width, height) pairs.
+	 * Frames are produced `fps` times per second, each one up to
+	 * `jitter` ms early or late.
+	 */
+	public SyntheticCameraSource(int[] sizes, float fps, long jitter) {
+		super();
+		this.sizes = sizes.clone();
+		this.period = (long)(1e9/fps);
+		this.jitter = jitter*1000000;
+	}
+
+	public static CameraSource.Factory factory(final int[] sizes, final float fps, final long jitter) {
+		return new CameraSource.Factory() {
+			@Override
+			public CameraSource open() {
+				return new SyntheticCameraSource(sizes, fps, jitter);
+			}
+		};
+	}
+
+	// advertises a size that does not deliver frames of the right length.
+	public synchronized void setBrokenSize(int w, int h) {
+		broken_width = w;
+		broken_height = h;
+	}
+
+	// plays back recorded frames instead of the pattern.
+	public synchronized void setReplayer(FrameReplayer r) {
+		replayer = r;
+	}
+
+	public synchronized void setFocus(long delay, boolean success) {
+		focus_delay = delay;
+		focus_success = success;
+	}
+
+	public synchronized long getDelivered() {
+		return delivered;
+	}
+
+	// frames dropped for lack of a buffer.
+	public synchronized long getDropped() {
+		return dropped;
+	}
+
+	//--------------
+	// CameraSource
+	//--------------
+	@Override
+	public int[] getSupportedPreviewSizes() {
+		return sizes.clone();
+	}
+
+	@Override
+	public synchronized void setPreviewSize(int w, int h) {
+		width = w;
+		height = h;
+	}
+
+	@Override
+	public void setDisplayOrientation(int degrees) {
+		// void implementation
+	}
+
+	@Override
+	public void setPreviewDisplay(SurfaceHolder holder) {
+		// void implementation
+	}
+
+	@Override
+	public synchronized void setFrameCallback(FrameCallback cb, boolean buffered) {
+		frame_callback = cb;
+		this.buffered = buffered;
+	}
+
+	@Override
+	public synchronized void addCallbackBuffer(byte[] b) {
+		if (nb_buffers == buffers.length) {
+			byte[][] bigger = new byte[2*buffers.length][];
+			for (int i = 0; i < nb_buffers; ++i) {
+				bigger[i] = buffers[(first + i) % buffers.length];
+			}
+			buffers = bigger;
+			first = 0;
+		}
+		buffers[(first + nb_buffers++) % buffers.length] = b;
+	}
+
+	// pops the oldest buffer, or null. Must hold the lock.
+	private byte[] poll() {
+		if (nb_buffers == 0) return null;
+		byte[] b = buffers[first];
+		buffers[first] = null;
+		first = (first + 1) % buffers.length;
+		--nb_buffers;
+		return b;
+	}
+
+	@Override
+	public synchronized void startPreview() {
+		if (running) return;
+		running = true;
+		thread = new Thread(this, TAG);
+		thread.start();
+	}
+
+	@Override
+	public void stopPreview() {
+		Thread t;
+		synchronized(this) {
+			running = false;
+			t = thread;
+			thread = null;
+			notifyAll();
+		}
+		if (t != null && t != Thread.currentThread()) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void autoFocus(FocusCallback cb) {
+		focus_callback = cb;
+		focus_due = System.nanoTime() + focus_delay*1000000;
+	}
+
+	@Override
+	public synchronized void cancelAutoFocus() {
+		focus_due = -1;
+	}
+
+	@Override
+	public void release() {
+		stopPreview();
+		synchronized(this) {
+			while (poll() != null) {
+				// drop it
+			}
+			frame_callback = null;
+			focus_callback = null;
+		}
+	}
+
+	//----------
+	// Runnable
+	//----------
+	@Override
+	public void run() {
+		long next = System.nanoTime();
+		while (true) {
+			FocusCallback fcb = null;
+			boolean fsuccess = false;
+			synchronized(this) {
+				long now = System.nanoTime();
+				long due = next;
+				if (focus_due >= 0 && focus_due < due) due = focus_due;
+				while (running && now < due) {
+					try {
+						wait(Math.max(1, (due - now)/1000000));
+					} catch (InterruptedException e) {
+						return;
+					}
+					now = System.nanoTime();
+				}
+				if (!running) return;
+				if (focus_due >= 0 && now >= focus_due) {
+					focus_due = -1;
+					fcb = focus_callback;
+					fsuccess = focus_success;
+				}
+			}
+			if (fcb != null) {
+				fcb.onFocus(fsuccess);
+			}
+			if (System.nanoTime() >= next) {
+				produce();
+				next += period + (jitter > 0 ? (long)((2*random.nextDouble() - 1)*jitter) : 0);
+			}
+		}
+	}
+
+	// delivers one frame, if possible.
+	private void produce() {
+		FrameCallback cb;
+		byte[] b;
+		synchronized(this) {
+			cb = frame_callback;
+			if (cb == null || width == 0) return;
+			int len = width*height*3/2;
+			boolean broken = width == broken_width && height == broken_height;
+			if (buffered) {
+				b = broken ? null : poll();
+				if (b == null || b.length < len) {
+					++dropped;
+					return;
+				}
+			}
+			else {
+				// broken sizes deliver frames of the wrong length.
+				b = new byte[broken ? width*height : len];
+			}
+			fill(b, Math.min(b.length, len));
+			++delivered;
+		}
+		cb.onFrame(b);
+	}
+
+	// draws the next frame into `b`. Must hold the lock.
+	private void fill(byte[] b, int len) {
+		FrameReplayer r = replayer;
+		if (r != null) {
+			if (!r.next()) {
+				r.rewind();
+				r.next();
+			}
+			if (r.getWidth() == width && r.getHeight() == height) {
+				r.read(b);
+				return;
+			}
+		}
+		// diagonal stripes moving by one pixel per frame,
+		// with neutral chroma.
+		int luma = Math.min(len, width*height);
+		int shift = frame_index++;
+		for (int y = 0; y < height && y*width < luma; ++y) {
+			int row = y*width;
+			for (int x = 0; x < width; ++x) {
+				b[row + x] = (byte)(((x + y + shift) & 0x20) != 0 ? 200 : 40);
+			}
+		}
+		for (int i = luma; i < len; ++i) {
+			b[i] = (byte)128;
+		}
+	}
+
+}
@@ -0,0 +1,232 @@
+package com.example.android;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* Fixed-size ring of scan events, flushed in the background to an
+ * append-only binary file that can be analyzed off the device with
+ * `TelemetryDecoder`.
+ *
+ * An event is four longs: wall-clock time in ms, kind and session id
+ * packed together, and two kind-specific values (see the kinds below).
+ * Recording reserves a slot with a CAS on the head index, writes the
+ * values in place and publishes them with an ordered store, so it never
+ * locks nor allocates and can be done from the frame path. When the
+ * flusher falls behind by a whole ring, new events are counted as lost
+ * rather than overwriting unflushed ones.
+ *
+ * The file starts with a header (MAGIC, VERSION), followed by 32 bytes
+ * big-endian records. Once it exceeds `MAX_FILE_SIZE`, it is renamed
+ * with a `.1` suffix (older files shifting up to `.<KEEP>`) and a new
+ * one is started.
+ */
+public class Telemetry implements Runnable {
+
+	public static final String TAG = "Telemetry";
+
+	public static final int MAGIC = 0x4d53544c; /* "MSTL" */
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 8;
+	public static final int RECORD_SIZE = 32;
+
+	// event kinds, with the meaning of their values (a, b).
+	public static final int SESSION_START = 1;  /* -, - */
+	public static final int SESSION_END = 2;    /* frames seen, frames scanned */
+	public static final int SCAN = 3;           /* duration in us, result type or 0 */
+	public static final int FIRST_RESULT = 4;   /* ms since session start, result type */
+	public static final int SCAN_ERROR = 5;     /* error code, - */
+	public static final int SYNC = 6;           /* duration in ms, error code */
+
+	public static final int CAPACITY = 1024; /* events, a power of 2 */
+	public static final long FLUSH_PERIOD = 5000; /* ms */
+	public static final long MAX_FILE_SIZE = 1048576; /* 1 MB */
+	public static final int KEEP = 3;
+
+	private static final int LONGS = RECORD_SIZE/8;
+	private static final int MASK = CAPACITY - 1;
+
+	private static final Telemetry instance = new Telemetry(Clock.WALL);
+
+	private final Clock clock;
+	private final long[] events = new long[CAPACITY*LONGS];
+	// index+1 of the event held by each slot once it is published.
+	private final AtomicLongArray published = new AtomicLongArray(CAPACITY);
+	private final AtomicLong head = new AtomicLong();
+	private volatile long tail = 0;
+	private final AtomicLong lost = new AtomicLong();
+	private final AtomicInteger sessions = new AtomicInteger();
+
+	private File file = null;
+	private Thread flusher = null;
+	private long written = 0;
+	private long failures = 0;
+
+	Telemetry(Clock clock) {
+		super();
+		this.clock = clock;
+		// start from the time in s so that ids hardly collide with
+		// those of previous runs.
+		sessions.set((int)(clock.now()/1000));
+	}
+
+	public static Telemetry get() {
+		return instance;
+	}
+
+	/* starts flushing to `f` in the background. Events recorded before
+	 * are kept, up to the ring capacity.
+	 */
+	public synchronized void start(File f) {
+		if (flusher != null) return;
+		file = f;
+		flusher = new Thread(this, TAG);
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	//-----------
+	// Recording
+	//-----------
+
+	// opens a scan session and returns its id.
+	public int beginSession() {
+		int id = sessions.incrementAndGet();
+		record(SESSION_START, id, 0, 0);
+		return id;
+	}
+
+	public void endSession(int session, long seen, long scanned) {
+		record(SESSION_END, session, seen, scanned);
+	}
+
+	// result types are recorded unsigned, `Result.Type.IMAGE` being the sign bit.
+	public void scan(int session, long duration_us, int type) {
+		record(SCAN, session, duration_us, type & 0xffffffffL);
+	}
+
+	public void firstResult(int session, long delay_ms, int type) {
+		record(FIRST_RESULT, session, delay_ms, type & 0xffffffffL);
+	}
+
+	public void scanError(int session, int code) {
+		record(SCAN_ERROR, session, code, 0);
+	}
+
+	public void sync(long duration_ms, int code) {
+		record(SYNC, 0, duration_ms, code);
+	}
+
+	public void record(int kind, int session, long a, long b) {
+		long h;
+		do {
+			h = head.get();
+			if (h - tail >= CAPACITY) {
+				lost.incrementAndGet();
+				return;
+			}
+		} while (!head.compareAndSet(h, h+1));
+		int slot = (int)(h & MASK);
+		int p = slot*LONGS;
+		events[p] = clock.now();
+		events[p+1] = ((long)kind << 32) | (session & 0xffffffffL);
+		events[p+2] = a;
+		events[p+3] = b;
+		published.lazySet(slot, h+1);
+	}
+
+	// events dropped because the ring was full.
+	public long getLost() {
+		return lost.get();
+	}
+
+	public synchronized long getWritten() {
+		return written;
+	}
+
+	//----------
+	// Flushing
+	//----------
+
+	/* writes every published event to the file. Returns the number of
+	 * events written.
+	 */
+	public synchronized int flush() {
+		if (file == null) return 0;
+		long t = tail;
+		long h = head.get();
+		int n = 0;
+		// stop at the first slot still being written.
+		while (t + n < h && published.get((int)((t + n) & MASK)) == t + n + 1) {
+			++n;
+		}
+		if (n == 0) return 0;
+		DataOutputStream out = null;
+		try {
+			if (file.length() >= MAX_FILE_SIZE) rotate();
+			boolean fresh = !file.exists() || file.length() == 0;
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+			if (fresh) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+			}
+			for (int i = 0; i < n; ++i) {
+				int p = (int)((t + i) & MASK)*LONGS;
+				for (int j = 0; j < LONGS; ++j) {
+					out.writeLong(events[p+j]);
+				}
+			}
+			out.flush();
+			written += n;
+		} catch (IOException e) {
+			// events are dropped rather than piling up.
+			++failures;
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+		tail = t + n;
+		return n;
+	}
+
+	// shifts `file` to `file.1`, `file.1` to `file.2`, and so on.
+	private void rotate() {
+		new File(file.getPath()+"."+KEEP).delete();
+		for (int i = KEEP - 1; i >= 1; --i) {
+			new File(file.getPath()+"."+i).renameTo(new File(file.getPath()+"."+(i+1)));
+		}
+		file.renameTo(new File(file.getPath()+".1"));
+	}
+
+	//----------
+	// Runnable
+	//----------
+	@Override
+	public void run() {
+		while (true) {
+			try {
+				Thread.sleep(FLUSH_PERIOD);
+			} catch (InterruptedException e) {
+				flush();
+				return;
+			}
+			flush();
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return TAG+": "+written+" events written, "+lost.get()+" lost, "+failures+" failed flushes";
+	}
+
+}
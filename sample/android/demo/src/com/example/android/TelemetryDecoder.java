@@ -0,0 +1,137 @@
+package com.example.android;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/* Aggregates telemetry files pulled from devices, off the device:
+ *
+ *   java com.example.android.TelemetryDecoder telemetry.bin telemetry.bin.1 ...
+ *
+ * Only plain Java is used, so it runs on any JVM with the app classes
+ * on the classpath.
+ */
+public class TelemetryDecoder {
+
+	public static final String TAG = "TelemetryDecoder";
+
+	private long events = 0;
+	private long sessions = 0;
+	private long seen = 0;
+	private long scanned = 0;
+	private long syncs = 0;
+	private long failed_syncs = 0;
+	private LatencyHistogram scan_times = new LatencyHistogram();
+	private LatencyHistogram first_results = new LatencyHistogram();
+	private LatencyHistogram sync_times = new LatencyHistogram();
+	private Map<Long, Long> result_types = new TreeMap<Long, Long>();
+	private Map<Long, Long> errors = new TreeMap<Long, Long>();
+
+	public TelemetryDecoder() {
+		super();
+	}
+
+	/* reads the records of `f`. A truncated last record is ignored. */
+	public void read(File f) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+		try {
+			if (in.readInt() != Telemetry.MAGIC) {
+				throw new IOException(f+" is not a telemetry file");
+			}
+			int version = in.readInt();
+			if (version != Telemetry.VERSION) {
+				throw new IOException(f+": unsupported version "+version);
+			}
+			while (true) {
+				long time;
+				long kind;
+				long a;
+				long b;
+				try {
+					time = in.readLong();
+					kind = in.readLong() >>> 32;
+					a = in.readLong();
+					b = in.readLong();
+				} catch (EOFException e) {
+					break;
+				}
+				add((int)kind, time, a, b);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private void add(int kind, long time, long a, long b) {
+		++events;
+		switch (kind) {
+		case Telemetry.SESSION_START:
+			++sessions;
+			break;
+		case Telemetry.SESSION_END:
+			seen += a;
+			scanned += b;
+			break;
+		case Telemetry.SCAN:
+			scan_times.record(a);
+			if (b != 0) increment(result_types, b);
+			break;
+		case Telemetry.FIRST_RESULT:
+			first_results.record(a);
+			break;
+		case Telemetry.SCAN_ERROR:
+			increment(errors, a);
+			break;
+		case Telemetry.SYNC:
+			++syncs;
+			if (b != 0) ++failed_syncs;
+			else sync_times.record(a);
+			break;
+		default:
+			// unknown kind, from a newer app version.
+			break;
+		}
+	}
+
+	private static void increment(Map<Long, Long> counts, long key) {
+		Long n = counts.get(key);
+		counts.put(key, n == null ? 1 : n + 1);
+	}
+
+	private static String percentiles(LatencyHistogram h, String unit) {
+		LatencyHistogram.Snapshot s = h.snapshot();
+		return "n="+s.getCount()+" p50="+s.getPercentile(50)+unit+" p90="+s.getPercentile(90)+unit+
+				" p99="+s.getPercentile(99)+unit+" max="+s.getMax()+unit;
+	}
+
+	public String report() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(events).append(" events, ").append(sessions).append(" sessions\n")
+			.append("frames: ").append(seen).append(" seen, ").append(scanned).append(" scanned\n")
+			.append("scan time: ").append(percentiles(scan_times, "us")).append('\n')
+			.append("time to first result: ").append(percentiles(first_results, "ms")).append('\n')
+			.append("syncs: ").append(syncs).append(", ").append(failed_syncs).append(" failed, ")
+			.append(percentiles(sync_times, "ms")).append('\n')
+			.append("results by type: ").append(result_types).append('\n')
+			.append("errors by code: ").append(errors);
+		return sb.toString();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("usage: TelemetryDecoder <file>...");
+			System.exit(1);
+		}
+		TelemetryDecoder d = new TelemetryDecoder();
+		for (String arg : args) {
+			d.read(new File(arg));
+		}
+		System.out.println(d.report());
+	}
+
+}
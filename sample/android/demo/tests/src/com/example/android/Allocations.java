@@ -0,0 +1,19 @@
+package com.example.android;
+
+import java.lang.management.ManagementFactory;
+
+// bytes allocated by the current thread, on HotSpot JVMs.
+public class Allocations {
+
+	private static final com.sun.management.ThreadMXBean BEAN =
+			(com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+	private Allocations() {
+		super();
+	}
+
+	public static long current() {
+		return BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.moodstocks.android.Image;
+import com.moodstocks.android.MoodstocksError;
+import com.moodstocks.android.Result;
+
+public class BatchScannerTest {
+
+	// scans each image for 1 ms, finding nothing.
+	private static final BatchScanner.EngineFactory ENGINES = new BatchScanner.EngineFactory() {
+		@Override
+		public BatchScanner.Engine create() {
+			return new BatchScanner.Engine() {
+				@Override
+				public Result scan(Image img) throws MoodstocksError, InterruptedException {
+					Thread.sleep(1);
+					return null;
+				}
+
+				@Override
+				public void cancel() {
+					// void implementation
+				}
+			};
+		}
+	};
+
+	/* `n` items, or endless if `n` is negative. One in ten cannot be
+	 * read. Reading takes `delay` ms.
+	 */
+	private static class Items implements BatchScanner.Source {
+		final int n;
+		final long delay;
+		int next = 0;
+		int loading = 0;
+		int max_loading = 0;
+
+		Items(int n, long delay) {
+			this.n = n;
+			this.delay = delay;
+		}
+
+		@Override
+		public String next() {
+			if (n >= 0 && next >= n) return null;
+			return Integer.toString(next++);
+		}
+
+		@Override
+		public Image load(String id) throws IOException {
+			synchronized(this) {
+				max_loading = Math.max(max_loading, ++loading);
+			}
+			try {
+				if (delay > 0) Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				synchronized(this) {
+					--loading;
+				}
+			}
+			if (Integer.parseInt(id) % 10 == 7) throw new IOException("unreadable "+id);
+			return null;
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void returnsEveryItemOnceToASlowConsumer() throws Exception {
+		BatchScanner b = new BatchScanner(ENGINES, 4, 8);
+		b.start(new Items(1000, 0));
+		Set<String> ids = new HashSet<String>();
+		int unreadable = 0;
+		BatchScanner.Outcome o;
+		while ((o = b.take()) != null) {
+			assertTrue(ids.add(o.id));
+			if (o.error != null) ++unreadable;
+			// the workers wait for room rather than dropping outcomes.
+			if (ids.size() % 100 == 0) Thread.sleep(20);
+		}
+		assertEquals(1000, ids.size());
+		assertEquals(100, unreadable);
+		assertEquals(1000, b.getCompleted());
+		assertEquals(100, b.getFailed());
+		assertTrue(b.isDone());
+		assertNull(b.take());
+	}
+
+	@Test(timeout = 10000)
+	public void cancelStopsAnEndlessBatch() throws Exception {
+		BatchScanner b = new BatchScanner(ENGINES, 4, 8);
+		b.start(new Items(-1, 0));
+		for (int i = 0; i < 50; ++i) {
+			b.take();
+		}
+		b.cancel();
+		assertNull(b.take());
+		assertTrue(b.await(1000));
+	}
+
+	@Test(timeout = 10000)
+	public void readsItemsInParallel() throws Exception {
+		BatchScanner b = new BatchScanner(ENGINES, 4, 8);
+		Items items = new Items(40, 10);
+		b.start(items);
+		while (b.take() != null) {
+			// drain
+		}
+		synchronized(items) {
+			assertEquals(4, items.max_loading);
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/* Rapid resume/pause cycles of `CameraManager` on synthetic cameras. */
+public class CameraLifecycleTest {
+
+	private static final int[] SIZES = { 640, 480, 320, 240 };
+
+	// counts the cameras open at the same time.
+	private static class Cameras implements CameraSource.Factory {
+		int open = 0;
+		int max_open = 0;
+		int opened = 0;
+
+		@Override
+		public CameraSource open() {
+			synchronized(this) {
+				++opened;
+				max_open = Math.max(max_open, ++open);
+			}
+			return new SyntheticCameraSource(SIZES, 120, 2) {
+				@Override
+				public void release() {
+					super.release();
+					synchronized(Cameras.this) {
+						--open;
+					}
+				}
+			};
+		}
+	}
+
+	// holds one frame in four for a while, across stops and starts.
+	private static class Consumer implements CameraManager.Listener {
+		final CameraManager manager;
+		final Map<byte[], Boolean> held = new IdentityHashMap<byte[], Boolean>();
+		final List<String> errors = new ArrayList<String>();
+		final List<Thread> threads = new ArrayList<Thread>();
+		long frames = 0;
+
+		Consumer(CameraManager manager) {
+			this.manager = manager;
+		}
+
+		@Override
+		public void onPreviewSizeFound(int w, int h) {
+			// void implementation
+		}
+
+		@Override
+		public void onPreviewFrame(final byte[] data) {
+			boolean keep;
+			synchronized(this) {
+				if (held.put(data, Boolean.TRUE) != null) errors.add("buffer delivered twice");
+				keep = ++frames % 4 == 0;
+			}
+			if (!keep) {
+				giveBack(data);
+				return;
+			}
+			Thread t = new Thread() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(40);
+					} catch (InterruptedException e) {
+						// give it back anyway
+					}
+					giveBack(data);
+				}
+			};
+			synchronized(this) {
+				threads.add(t);
+			}
+			t.start();
+		}
+
+		private void giveBack(byte[] data) {
+			synchronized(this) {
+				held.remove(data);
+			}
+			manager.releaseFrame(data);
+		}
+
+		@Override
+		public void onCameraError() {
+			synchronized(this) {
+				errors.add("camera error");
+			}
+		}
+
+		@Override
+		public float getScreenRatio() {
+			return 0.75f;
+		}
+
+		void joinAll() throws InterruptedException {
+			List<Thread> l;
+			synchronized(this) {
+				l = new ArrayList<Thread>(threads);
+			}
+			for (Thread t : l) {
+				t.join();
+			}
+		}
+	}
+
+	private static int cameraThreads() {
+		int n = 0;
+		for (Thread t : Thread.getAllStackTraces().keySet()) {
+			if (t.isAlive() && CameraManager.TAG.equals(t.getName())) ++n;
+		}
+		return n;
+	}
+
+	// what the camera, frame and consumer threads failed with.
+	private static class Uncaught implements Thread.UncaughtExceptionHandler {
+		final List<String> errors = new ArrayList<String>();
+
+		@Override
+		public synchronized void uncaughtException(Thread t, Throwable e) {
+			StackTraceElement[] trace = e.getStackTrace();
+			errors.add(t.getName()+": "+e+(trace.length > 0 ? " at "+trace[0] : ""));
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void survivesRapidResumePauseCycles() throws Exception {
+		Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+		Uncaught uncaught = new Uncaught();
+		Thread.setDefaultUncaughtExceptionHandler(uncaught);
+		try {
+			cycle(uncaught);
+		} finally {
+			Thread.setDefaultUncaughtExceptionHandler(handler);
+		}
+	}
+
+	private void cycle(Uncaught uncaught) throws Exception {
+		CameraManager manager = CameraManager.get();
+		Cameras cameras = new Cameras();
+		manager.setSourceFactory(cameras);
+		manager.setLogger(Logger.NONE);
+		Consumer consumer = new Consumer(manager);
+		Random random = new Random(0);
+		for (int i = 0; i < 200; ++i) {
+			manager.start(consumer, null);
+			Thread.sleep(random.nextInt(i % 3 == 0 ? 40 : 8));
+			if (i % 50 == 25) {
+				// started twice in a row.
+				manager.start(consumer, null);
+			}
+			manager.stop();
+		}
+		assertTrue(manager.awaitStopped(10000));
+		consumer.joinAll();
+		manager.setSourceFactory(null);
+		manager.setLogger(null);
+		synchronized(consumer) {
+			assertEquals(consumer.errors.toString(), 0, consumer.errors.size());
+			assertEquals(0, consumer.held.size());
+			assertTrue("frames "+consumer.frames, consumer.frames > 0);
+		}
+		synchronized(cameras) {
+			assertEquals(1, cameras.max_open);
+			assertEquals(0, cameras.open);
+			assertTrue(cameras.opened > 0);
+		}
+		// terminated threads may take a moment to exit.
+		for (int i = 0; i < 100 && cameraThreads() > 0; ++i) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, cameraThreads());
+		synchronized(uncaught) {
+			assertEquals(uncaught.errors.toString(), 0, uncaught.errors.size());
+		}
+		FrameRing ring = manager.getFrameRing();
+		assertEquals(ring.capacity(), ring.available());
+	}
+
+}
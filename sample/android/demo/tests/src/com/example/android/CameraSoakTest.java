@@ -0,0 +1,160 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/* Runs the capture loop of `CameraManager` on a `SyntheticCameraSource`
+ * for `soak.seconds` seconds (2 by default, e.g. -Dsoak.seconds=14400
+ * for a four hours soak), with a consumer that scans each frame for a
+ * few ms on a thread of its own as the app does, and checks the frame
+ * rate, the dropped frames and the heap growth.
+ */
+public class CameraSoakTest {
+
+	private static final int[] SIZES = { 640, 480, 320, 240 };
+	private static final float FPS = 60;
+	private static final long SCAN_TIME = 5; /* in ms */
+
+	// keeps the sources it opens, to read their counters.
+	private static class Sources implements CameraSource.Factory {
+		final CameraSource.Factory factory = SyntheticCameraSource.factory(SIZES, FPS, 3);
+		SyntheticCameraSource last;
+
+		@Override
+		public synchronized CameraSource open() {
+			last = (SyntheticCameraSource) factory.open();
+			return last;
+		}
+	}
+
+	// scans one frame at a time, and hands the others straight back.
+	private static class Consumer implements CameraManager.Listener, Runnable {
+		final CameraManager manager;
+		byte[] frame = null;
+		long received = 0;
+		long scanned = 0;
+		long released = 0;
+		boolean running = true;
+		int width = 0;
+
+		Consumer(CameraManager manager) {
+			this.manager = manager;
+		}
+
+		@Override
+		public void onPreviewSizeFound(int w, int h) {
+			width = w;
+		}
+
+		@Override
+		public void onPreviewFrame(byte[] data) {
+			boolean busy;
+			synchronized(this) {
+				++received;
+				busy = frame != null;
+				if (!busy) {
+					frame = data;
+					notifyAll();
+				}
+			}
+			if (busy) giveBack(data);
+		}
+
+		@Override
+		public void onCameraError() {
+			// void implementation
+		}
+
+		@Override
+		public float getScreenRatio() {
+			return 0.75f;
+		}
+
+		private void giveBack(byte[] data) {
+			synchronized(this) {
+				++released;
+			}
+			manager.releaseFrame(data);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				byte[] f;
+				synchronized(this) {
+					while (running && frame == null) {
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+					if (frame == null) return;
+					f = frame;
+				}
+				try {
+					Thread.sleep(SCAN_TIME);
+				} catch (InterruptedException e) {
+					return;
+				}
+				synchronized(this) {
+					frame = null;
+					++scanned;
+				}
+				giveBack(f);
+			}
+		}
+
+		synchronized void shutdown() {
+			running = false;
+			notifyAll();
+		}
+	}
+
+	private static long usedHeap() {
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < 3; ++i) {
+			System.gc();
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	@Test
+	public void sustainsTheFrameRate() throws Exception {
+		long seconds = Long.getLong("soak.seconds", 2);
+		CameraManager manager = CameraManager.get();
+		Sources sources = new Sources();
+		manager.setSourceFactory(sources);
+		manager.setLogger(Logger.NONE);
+		Consumer consumer = new Consumer(manager);
+		Thread scanner = new Thread(consumer, "scanner");
+		scanner.start();
+		manager.start(consumer, null);
+		// let the heap settle before the baseline.
+		Thread.sleep(500);
+		long heap = usedHeap();
+		long received = consumer.received;
+		long start = System.nanoTime();
+		Thread.sleep(seconds*1000);
+		float elapsed = (System.nanoTime() - start)/1e9f;
+		float fps = (consumer.received - received)/elapsed;
+		long growth = usedHeap() - heap;
+		manager.stop();
+		consumer.shutdown();
+		scanner.join();
+		manager.setSourceFactory(null);
+		manager.setLogger(null);
+		SyntheticCameraSource cam = sources.last;
+		assertEquals(640, consumer.width);
+		assertTrue("fps "+fps+" over "+elapsed+" s", fps >= FPS/2);
+		assertTrue("dropped "+cam.getDropped()+" of "+cam.getDelivered(), cam.getDropped() <= cam.getDelivered()/10);
+		assertTrue("scanned "+consumer.scanned, consumer.scanned > 0);
+		assertTrue("heap growth "+growth, growth < 2 << 20);
+		synchronized(consumer) {
+			assertEquals(consumer.received, consumer.released);
+		}
+	}
+
+}
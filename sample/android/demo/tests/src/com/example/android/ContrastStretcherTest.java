@@ -0,0 +1,81 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ContrastStretcherTest {
+
+	private static final int W = 1280;
+	private static final int H = 720;
+
+	// a NV21 frame whose luma is uniformly spread over [`low`, `high`).
+	private static byte[] frame(int low, int high) {
+		Random random = new Random(3);
+		byte[] f = new byte[W*H*3/2];
+		for (int i = 0; i < W*H; ++i) {
+			f[i] = (byte)(low + random.nextInt(high - low));
+		}
+		return f;
+	}
+
+	@Test
+	public void stretchesDarkFrames() {
+		byte[] f = frame(20, 60);
+		ContrastStretcher c = new ContrastStretcher();
+		assertTrue(c.apply(f, 100, 50, 1000, 600, W));
+		int min = 255;
+		int max = 0;
+		for (int j = 50; j < 650; ++j) {
+			for (int i = 100; i < 1100; ++i) {
+				int v = f[j*W + i] & 0xff;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+		}
+		assertEquals(0, min);
+		assertEquals(255, max);
+		// outside of the region is left as is.
+		assertTrue((f[0] & 0xff) >= 20 && (f[0] & 0xff) < 60);
+		assertEquals(1, c.getApplied());
+	}
+
+	@Test
+	public void leavesWellLitAndFlatFramesAlone() {
+		ContrastStretcher c = new ContrastStretcher();
+		// bright, spanning a bit more than DEFAULT_MIN_RANGE.
+		byte[] f = frame(100, 210);
+		byte[] copy = f.clone();
+		assertFalse(c.apply(f, 0, 0, W, H, W));
+		assertTrue(Arrays.equals(copy, f));
+		// a blank table: stretching would only amplify noise.
+		assertFalse(c.apply(frame(30, 30 + ContrastStretcher.MIN_SPAN/2), 0, 0, W, H, W));
+		assertEquals(2, c.getSkipped());
+	}
+
+	@Test
+	public void doesNotAllocatePerFrame() {
+		byte[] src = frame(20, 60);
+		byte[] f = src.clone();
+		ContrastStretcher c = new ContrastStretcher();
+		// warm up, so that nothing is left to load or compile lazily.
+		for (int i = 0; i < 2000; ++i) {
+			System.arraycopy(src, 0, f, 0, W*H);
+			c.apply(f, 100, 50, 1000, 600, W);
+		}
+		long before = Allocations.current();
+		for (int i = 0; i < 2000; ++i) {
+			System.arraycopy(src, 0, f, 0, W*H);
+			c.apply(f, 100, 50, 1000, 600, W);
+		}
+		long allocated = Allocations.current() - before;
+		assertTrue(allocated+" bytes allocated", allocated < 1024);
+		assertEquals(4000, c.getApplied());
+	}
+
+}
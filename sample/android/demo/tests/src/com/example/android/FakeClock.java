@@ -0,0 +1,26 @@
+package com.example.android;
+
+// clock moved by hand.
+public class FakeClock implements Clock {
+
+	private long now = 0;
+
+	public FakeClock() {
+		super();
+	}
+
+	public FakeClock(long now) {
+		super();
+		this.now = now;
+	}
+
+	@Override
+	public synchronized long now() {
+		return now;
+	}
+
+	public synchronized void advance(long ms) {
+		now += ms;
+	}
+
+}
@@ -0,0 +1,107 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FocusControllerTest {
+
+	// completes every focus right away, with the given outcome.
+	private static class Lens implements FocusController.Lens {
+		FocusController controller;
+		boolean success = true;
+		int requests = 0;
+
+		@Override
+		public void autoFocus() {
+			++requests;
+			controller.onFocus(success);
+		}
+	}
+
+	private FakeClock clock;
+	private Lens lens;
+	private FocusController controller;
+
+	@Before
+	public void setup() {
+		clock = new FakeClock(10000);
+		lens = new Lens();
+		controller = new FocusController(lens, clock);
+		lens.controller = controller;
+	}
+
+	// advances by `ms` in 100 ms ticks, feeding a frame of the given score at each.
+	private void run(long ms, float score) {
+		for (long t = 0; t < ms; t += 100) {
+			clock.advance(100);
+			controller.onSharpness(score);
+			controller.tick();
+		}
+	}
+
+	@Test
+	public void focusesOnStart() {
+		controller.start();
+		assertEquals(1, lens.requests);
+	}
+
+	@Test
+	public void retriesFailedFocusAfterMinDelay() {
+		lens.success = false;
+		controller.start();
+		run(3300, 100);
+		// one request every MIN_DELAY, none skipped.
+		assertEquals(1 + 3300/FocusController.MIN_DELAY, lens.requests);
+		assertEquals(0, controller.getSkipped());
+	}
+
+	@Test
+	public void backsOffWhileFramesStaySharp() {
+		controller.start();
+		run(FocusController.BASE_DELAY + 100, 100);
+		assertEquals(1, lens.requests);
+		assertEquals(1, controller.getSkipped());
+		run(2*FocusController.BASE_DELAY, 100);
+		assertEquals(1, lens.requests);
+		assertEquals(2, controller.getSkipped());
+	}
+
+	@Test
+	public void refocusesWhenTheLastFramesAreBlurry() {
+		controller.start();
+		run(1000, 100);
+		// a single blurry frame before the check is enough not to skip it.
+		run(400, 100);
+		clock.advance(100);
+		controller.onSharpness(30);
+		assertTrue(controller.tick());
+		assertEquals(2, lens.requests);
+	}
+
+	@Test
+	public void recoversSteadinessAfterABlurryFrame() {
+		controller.start();
+		run(1000, 100);
+		clock.advance(100);
+		controller.onSharpness(30);
+		assertFalse(controller.tick());
+		run(500, 100);
+		assertEquals(1, lens.requests);
+		assertEquals(1, controller.getSkipped());
+	}
+
+	@Test
+	public void refocusesAfterASceneChange() {
+		controller.start();
+		run(200, 100);
+		clock.advance(400);
+		controller.onSceneChange();
+		assertTrue(controller.tick());
+		assertEquals(2, lens.requests);
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.example.android;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class FrameRecorderTest {
+
+	private static byte[] frame(int w, int h, int seed) {
+		byte[] b = new byte[w*h*3/2];
+		for (int i = 0; i < b.length; ++i) {
+			b[i] = (byte)(i*31 + seed);
+		}
+		return b;
+	}
+
+	// records `frames`, waiting for the writer instead of dropping any.
+	private static File record(int[][] sizes) throws Exception {
+		File f = File.createTempFile("frames", ".rec");
+		f.deleteOnExit();
+		FrameRecorder r = new FrameRecorder(f);
+		for (int i = 0; i < sizes.length; ++i) {
+			byte[] b = frame(sizes[i][0], sizes[i][1], i);
+			while (!r.record(b, sizes[i][0], sizes[i][1], 90)) Thread.sleep(1);
+		}
+		r.close();
+		assertEquals(sizes.length, r.getFrameCount());
+		assertFalse(r.record(new byte[6], 2, 2, 0));
+		return f;
+	}
+
+	@Test(timeout = 5000)
+	public void replaysWhatWasRecorded() throws Exception {
+		int[][] sizes = new int[20][];
+		for (int i = 0; i < sizes.length; ++i) {
+			sizes[i] = new int[] { 16, 8 };
+		}
+		FrameReplayer p = new FrameReplayer(record(sizes));
+		assertEquals(20, p.getFrameCount());
+		for (int i = 0; i < 20; ++i) {
+			assertTrue(p.next());
+			byte[] b = new byte[p.getLength()];
+			p.read(b);
+			assertArrayEquals(frame(16, 8, i), b);
+			assertEquals(90, p.getOrientation());
+		}
+		assertFalse(p.next());
+	}
+
+	@Test(timeout = 5000)
+	public void stopsAtTheEndOfAnUnclosedRecording() throws Exception {
+		File f = File.createTempFile("frames", ".rec");
+		f.deleteOnExit();
+		FrameRecorder r = new FrameRecorder(f);
+		for (int i = 0; i < 3; ++i) {
+			while (!r.record(frame(16, 8, i), 16, 8, 90)) Thread.sleep(1);
+		}
+		while (r.getFrameCount() < 3) Thread.sleep(1);
+		// e.g. the app was killed: no frame count, a chunk of zeroes.
+		FrameReplayer p = new FrameReplayer(f);
+		assertEquals(0, p.getFrameCount());
+		for (int i = 0; i < 3; ++i) {
+			assertTrue(p.next());
+			assertEquals(16, p.getWidth());
+		}
+		assertFalse(p.next());
+		r.close();
+	}
+
+	@Test(timeout = 10000)
+	public void recordsWithoutAllocating() throws Exception {
+		File f = File.createTempFile("frames", ".rec");
+		f.deleteOnExit();
+		FrameRecorder r = new FrameRecorder(f);
+		byte[] b = frame(64, 48, 0);
+		// sizes the spare buffers.
+		for (int i = 0; i < 1000; ++i) {
+			r.record(b, 64, 48, 90);
+		}
+		long before = Allocations.current();
+		for (int i = 0; i < 1000; ++i) {
+			r.record(b, 64, 48, 90);
+		}
+		long allocated = Allocations.current() - before;
+		r.close();
+		assertEquals(allocated+" bytes allocated", 0, allocated);
+	}
+
+	// holds on to each frame for a while on another thread, as a scan would.
+	private static class SlowListener implements CameraManager.Listener {
+		final FrameRing pool;
+		final List<String> errors = new ArrayList<String>();
+		int width;
+		int height;
+
+		SlowListener(FrameRing pool) {
+			this.pool = pool;
+		}
+
+		@Override
+		public void onPreviewSizeFound(int w, int h) {
+			width = w;
+			height = h;
+		}
+
+		@Override
+		public void onPreviewFrame(final byte[] data) {
+			final int len = width*height*3/2;
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(20);
+					} catch (InterruptedException e) {
+						return;
+					}
+					// a resize while the frame is held would have replaced it.
+					synchronized(errors) {
+						if (!pool.owns(data)) errors.add("buffer freed while held");
+						if (pool.frameSize() != len) errors.add("pool resized while held");
+					}
+					pool.release(data);
+				}
+			}.start();
+		}
+
+		@Override
+		public void onCameraError() {
+			// void implementation
+		}
+
+		@Override
+		public float getScreenRatio() {
+			return 1;
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void waitsForHeldBuffersBeforeResizing() throws Exception {
+		int[][] sizes = { { 16, 8 }, { 16, 8 }, { 32, 16 }, { 32, 16 }, { 8, 4 } };
+		FrameReplayer p = new FrameReplayer(record(sizes));
+		FrameRing pool = new FrameRing();
+		SlowListener l = new SlowListener(pool);
+		assertEquals(0, p.replay(l, pool, false));
+		assertTrue(pool.awaitFree(1000));
+		assertEquals(0, l.errors.size());
+	}
+
+}
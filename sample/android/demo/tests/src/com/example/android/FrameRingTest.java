@@ -0,0 +1,178 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class FrameRingTest {
+
+	@Test
+	public void acquiresEveryBufferOnce() {
+		FrameRing ring = new FrameRing();
+		ring.resize(3, 100);
+		Set<byte[]> seen = new HashSet<byte[]>();
+		for (int i = 0; i < 3; ++i) {
+			byte[] b = ring.acquire();
+			assertNotNull(b);
+			assertEquals(100, b.length);
+			assertTrue(seen.add(b));
+		}
+		assertNull(ring.acquire());
+		assertEquals(0, ring.available());
+	}
+
+	@Test
+	public void rejectsForeignAndDoubleReleases() {
+		FrameRing ring = new FrameRing();
+		ring.resize(2, 10);
+		byte[] b = ring.acquire();
+		assertFalse(ring.release(new byte[10]));
+		assertFalse(ring.release(null));
+		assertTrue(ring.release(b));
+		assertFalse(ring.release(b));
+		assertEquals(2, ring.available());
+	}
+
+	@Test
+	public void recyclesBuffersWhenShrinking() {
+		FrameRing ring = new FrameRing();
+		ring.resize(2, 100);
+		byte[] b = ring.acquire();
+		ring.release(b);
+		ring.resize(2, 50);
+		assertEquals(50, ring.frameSize());
+		assertEquals(100, ring.bufferSize());
+		assertTrue(ring.owns(b));
+		ring.resize(2, 200);
+		assertFalse(ring.owns(b));
+		assertEquals(200, ring.bufferSize());
+	}
+
+	@Test
+	public void reallocatesWhenTheCountChanges() {
+		FrameRing ring = new FrameRing();
+		ring.resize(2, 10);
+		byte[] b = ring.acquire();
+		ring.release(b);
+		ring.resize(3, 10);
+		assertEquals(3, ring.capacity());
+		assertEquals(3, ring.available());
+		byte[] c = ring.acquire();
+		assertNotSame(b, c);
+	}
+
+	@Test(timeout = 2000)
+	public void acquireWaitsForARelease() throws Exception {
+		final FrameRing ring = new FrameRing();
+		ring.resize(1, 10);
+		final byte[] b = ring.acquire();
+		Thread t = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					return;
+				}
+				ring.release(b);
+			}
+		};
+		t.start();
+		assertSame(b, ring.acquire(1000));
+		t.join();
+	}
+
+	@Test
+	public void acquireTimesOut() throws Exception {
+		FrameRing ring = new FrameRing();
+		ring.resize(1, 10);
+		ring.acquire();
+		long start = System.nanoTime();
+		assertNull(ring.acquire(30));
+		assertTrue(System.nanoTime() - start >= 25000000L);
+	}
+
+	// gives every frame straight back, and measures what the frame
+	// thread allocates over `frames` frames once warm.
+	private static class SteadyState implements CameraManager.Listener {
+		static final int WARMUP = 300;
+		final CameraManager manager;
+		final int frames;
+		long received = 0;
+		long before = 0;
+		long allocated = -1;
+
+		SteadyState(CameraManager manager, int frames) {
+			this.manager = manager;
+			this.frames = frames;
+		}
+
+		@Override
+		public void onPreviewSizeFound(int w, int h) {
+			// void implementation
+		}
+
+		@Override
+		public void onPreviewFrame(byte[] data) {
+			manager.releaseFrame(data);
+			long n = ++received;
+			if (n == WARMUP) {
+				before = Allocations.current();
+			}
+			else if (n == WARMUP + frames) {
+				long a = Allocations.current() - before;
+				synchronized(this) {
+					allocated = a;
+					notifyAll();
+				}
+			}
+		}
+
+		@Override
+		public void onCameraError() {
+			// void implementation
+		}
+
+		@Override
+		public float getScreenRatio() {
+			return 0.75f;
+		}
+
+		synchronized long await() throws InterruptedException {
+			while (allocated < 0) {
+				wait();
+			}
+			return allocated;
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void circulatesFramesWithoutAllocating() throws Exception {
+		CameraManager manager = CameraManager.get();
+		manager.setSourceFactory(SyntheticCameraSource.factory(new int[] { 320, 240 }, 500, 0));
+		manager.setLogger(Logger.NONE);
+		SteadyState listener = new SteadyState(manager, 1000);
+		manager.start(listener, null);
+		long allocated;
+		try {
+			allocated = listener.await();
+		} finally {
+			manager.stop();
+			assertTrue(manager.awaitStopped(10000));
+			manager.setSourceFactory(null);
+			manager.setLogger(null);
+		}
+		// camera -> manager -> listener -> ring -> camera, on the frame thread.
+		assertEquals(allocated+" bytes allocated over "+listener.frames+" frames", 0, allocated);
+	}
+
+}
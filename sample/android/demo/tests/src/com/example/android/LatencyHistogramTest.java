@@ -0,0 +1,129 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void smallValuesHaveTheirOwnBucket() {
+		for (int v = 0; v < 32; ++v) {
+			assertEquals(v, LatencyHistogram.lowest(LatencyHistogram.index(v)));
+		}
+	}
+
+	@Test
+	public void bucketsAreContiguous() {
+		int last = LatencyHistogram.index((1L << 40) - 1);
+		for (int i = 0; i < last; ++i) {
+			long lo = LatencyHistogram.lowest(i);
+			long next = LatencyHistogram.lowest(i + 1);
+			assertTrue(i+": "+lo+" >= "+next, lo < next);
+			assertEquals(i, LatencyHistogram.index(lo));
+			assertEquals(i, LatencyHistogram.index(next - 1));
+		}
+	}
+
+	@Test
+	public void bucketsAreWithinASixteenth() {
+		for (long v = 16; v < (1L << 40); v = v*3/2 + 7) {
+			long lo = LatencyHistogram.lowest(LatencyHistogram.index(v));
+			assertTrue(v+" in "+lo, lo <= v);
+			assertTrue(v+" in "+lo, (v - lo)*16 <= v);
+		}
+	}
+
+	@Test
+	public void hugeValuesGoInTheLastBucket() {
+		int last = LatencyHistogram.index((1L << 40) - 1);
+		assertEquals(last, LatencyHistogram.index(1L << 40));
+		assertEquals(last, LatencyHistogram.index(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void emptySnapshot() {
+		LatencyHistogram.Snapshot s = new LatencyHistogram().snapshot();
+		assertEquals(0, s.getCount());
+		assertEquals(0, s.getMax());
+		assertEquals(0, s.getMean());
+		assertEquals(0, s.getPercentile(50));
+	}
+
+	@Test
+	public void percentiles() {
+		LatencyHistogram h = new LatencyHistogram();
+		for (int v = 1; v <= 1000; ++v) {
+			h.record(v);
+		}
+		LatencyHistogram.Snapshot s = h.snapshot();
+		assertEquals(1000, s.getCount());
+		assertEquals(1000, s.getMax());
+		assertEquals(500, s.getMean());
+		assertEquals(1, s.getPercentile(0));
+		// lower bound of the bucket of 1000, 500, 900 and 990.
+		assertEquals(992, s.getPercentile(100));
+		assertEquals(496, s.getPercentile(50));
+		assertEquals(896, s.getPercentile(90));
+		assertEquals(960, s.getPercentile(99));
+	}
+
+	@Test
+	public void percentilesOfFewValues() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(3);
+		h.record(1000);
+		assertEquals(3, h.snapshot().getPercentile(50));
+		assertEquals(992, h.snapshot().getPercentile(51));
+	}
+
+	@Test
+	public void negativeValuesCountAsZero() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(-5);
+		LatencyHistogram.Snapshot s = h.snapshot();
+		assertEquals(1, s.getCount());
+		assertEquals(0, s.getMax());
+		assertEquals(0, s.getPercentile(100));
+	}
+
+	@Test
+	public void reset() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(42);
+		h.reset();
+		LatencyHistogram.Snapshot s = h.snapshot();
+		assertEquals(0, s.getCount());
+		assertEquals(0, s.getMax());
+		assertEquals(0, s.getMean());
+		h.record(7);
+		assertEquals(7, h.snapshot().getPercentile(50));
+	}
+
+	@Test(timeout = 10000)
+	public void concurrentRecords() throws Exception {
+		final LatencyHistogram h = new LatencyHistogram();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; ++t) {
+			final int base = t*100000;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 100000; ++i) {
+						h.record(base + i);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		LatencyHistogram.Snapshot s = h.snapshot();
+		assertEquals(400000, s.getCount());
+		assertEquals(399999, s.getMax());
+		assertEquals(199999, s.getMean());
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LumaPyramidTest {
+
+	@Test
+	public void buildsLevelsDownToMinSize() {
+		LumaPyramid p = new LumaPyramid(3);
+		byte[] data = new byte[640*480];
+		// 320x240 and 160x120: 80x60 would be too small.
+		assertEquals(2, p.build(data, 0, 0, 640, 480, 640));
+		assertEquals(320, p.getWidth(1));
+		assertEquals(120, p.getHeight(2));
+		assertEquals(0, p.build(data, 0, 0, 200, 200, 640));
+	}
+
+	@Test
+	public void downsamplesWithABoxFilter() {
+		byte[] src = { 0, 4, 8, 8, 2, 6, 8, 8 };
+		byte[] dst = new byte[2];
+		LumaPyramid.downsample(src, 0, 4, 2, 4, dst);
+		assertEquals(3, dst[0]);
+		assertEquals(8, dst[1]);
+	}
+
+	@Test
+	public void coarseLevelsAreProbedOnlyWhileTheyMiss() {
+		LumaPyramid p = new LumaPyramid(1);
+		// every coarse scan misses: they end up turned off.
+		int used = 0;
+		for (int i = 0; i < 200; ++i) {
+			if (p.useCoarse()) {
+				++used;
+				p.record(1, false);
+				p.record(0, true);
+			}
+		}
+		assertTrue(p.getCoarseHitRate() < LumaPyramid.MIN_HIT_RATE);
+		assertTrue("used "+used, used < 50);
+		// probes keep coming, and hits turn them back on.
+		int frames = 0;
+		while (!p.useCoarse()) ++frames;
+		assertTrue(frames < LumaPyramid.PROBE_PERIOD);
+		for (int i = 0; i < 40; ++i) {
+			p.record(1, true);
+		}
+		for (int i = 0; i < 5; ++i) {
+			assertTrue(p.useCoarse());
+		}
+		p.reset();
+		assertEquals(1, p.getCoarseHitRate(), 0);
+		assertFalse(p.getScans(1) > 0);
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LumaViewTest {
+
+	// a rectangle that spans more than one tile, inside a larger frame.
+	private static final int W = 37;
+	private static final int H = 23;
+	private static final int STRIDE = 41;
+	private static final int OFFSET = 2*STRIDE + 3;
+
+	@Test
+	public void mapsEveryRotationAndMirror() {
+		byte[] data = new byte[STRIDE*(H+3)];
+		new Random(1).nextBytes(data);
+		LumaView v = new LumaView();
+		for (int q = 0; q < 4; ++q) {
+			for (int m = 0; m < 2; ++m) {
+				v.set(data, OFFSET, W, H, STRIDE, q, m == 1);
+				byte[] copy = v.copyTo(null);
+				int vw = v.getWidth();
+				int vh = v.getHeight();
+				assertEquals(q % 2 == 0 ? W : H, vw);
+				for (int y = 0; y < vh; ++y) {
+					for (int x = 0; x < vw; ++x) {
+						// unmirrored view coordinate, then clockwise rotation.
+						int u = m == 1 ? vw-1-x : x;
+						int sx, sy;
+						switch (q) {
+						case 0: sx = u; sy = y; break;
+						case 1: sx = y; sy = H-1-u; break;
+						case 2: sx = W-1-u; sy = H-1-y; break;
+						default: sx = W-1-y; sy = u; break;
+						}
+						String at = q+" "+m+" "+x+" "+y;
+						assertEquals(at, sx, v.sourceX(x, y));
+						assertEquals(at, sy, v.sourceY(x, y));
+						assertEquals(at, data[OFFSET + sy*STRIDE + sx], copy[y*vw + x]);
+						assertEquals(at, data[OFFSET + sy*STRIDE + sx] & 0xff, v.get(x, y));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void convertsDegreesToQuarters() {
+		assertEquals(0, LumaView.quarters(0));
+		assertEquals(1, LumaView.quarters(90));
+		assertEquals(3, LumaView.quarters(-90));
+		assertEquals(2, LumaView.quarters(540));
+	}
+
+}
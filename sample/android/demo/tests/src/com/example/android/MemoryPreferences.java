@@ -0,0 +1,143 @@
+package com.example.android;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+// in-memory `SharedPreferences`, counting commits.
+public class MemoryPreferences implements SharedPreferences {
+
+	private final Map<String, Object> values = new HashMap<String, Object>();
+	private int commits = 0;
+	private Thread last_committer = null;
+
+	// a context whose preferences are this object.
+	public Context context() {
+		return new Context() {
+			@Override
+			public SharedPreferences getSharedPreferences(String name, int mode) {
+				return MemoryPreferences.this;
+			}
+		};
+	}
+
+	public synchronized int getCommits() {
+		return commits;
+	}
+
+	public synchronized Thread getLastCommitter() {
+		return last_committer;
+	}
+
+	// waits for `n` commits in all.
+	public synchronized void awaitCommits(int n) throws InterruptedException {
+		while (commits < n) wait();
+	}
+
+	private synchronized Object get(String k, Object d) {
+		Object v = values.get(k);
+		return v == null ? d : v;
+	}
+
+	@Override
+	public long getLong(String k, long d) {
+		return (Long)get(k, d);
+	}
+
+	@Override
+	public int getInt(String k, int d) {
+		return (Integer)get(k, d);
+	}
+
+	@Override
+	public float getFloat(String k, float d) {
+		return (Float)get(k, d);
+	}
+
+	@Override
+	public String getString(String k, String d) {
+		return (String)get(k, d);
+	}
+
+	@Override
+	public boolean getBoolean(String k, boolean d) {
+		return (Boolean)get(k, d);
+	}
+
+	@Override
+	public synchronized boolean contains(String k) {
+		return values.containsKey(k);
+	}
+
+	@Override
+	public Editor edit() {
+		return new Editor() {
+			private final Map<String, Object> changes = new HashMap<String, Object>();
+
+			private Editor put(String k, Object v) {
+				changes.put(k, v);
+				return this;
+			}
+
+			@Override
+			public Editor putLong(String k, long v) {
+				return put(k, v);
+			}
+
+			@Override
+			public Editor putInt(String k, int v) {
+				return put(k, v);
+			}
+
+			@Override
+			public Editor putFloat(String k, float v) {
+				return put(k, v);
+			}
+
+			@Override
+			public Editor putString(String k, String v) {
+				return put(k, v);
+			}
+
+			@Override
+			public Editor putBoolean(String k, boolean v) {
+				return put(k, v);
+			}
+
+			@Override
+			public Editor remove(String k) {
+				return put(k, null);
+			}
+
+			@Override
+			public Editor clear() {
+				synchronized(MemoryPreferences.this) {
+					values.clear();
+				}
+				return this;
+			}
+
+			@Override
+			public boolean commit() {
+				synchronized(MemoryPreferences.this) {
+					for (Map.Entry<String, Object> e : changes.entrySet()) {
+						if (e.getValue() == null) values.remove(e.getKey());
+						else values.put(e.getKey(), e.getValue());
+					}
+					++commits;
+					last_committer = Thread.currentThread();
+					MemoryPreferences.this.notifyAll();
+				}
+				return true;
+			}
+
+			@Override
+			public void apply() {
+				commit();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.moodstocks.android.Image;
+import com.moodstocks.android.MoodstocksError;
+import com.moodstocks.android.Result;
+import com.moodstocks.android.ScannerSession;
+
+public class ParallelScannerTest {
+
+	private static class Outcomes implements ScannerSession.ScanListener {
+		final List<Result> results = new ArrayList<Result>();
+		int failures = 0;
+
+		@Override
+		public void onScanStart() {
+			// void implementation
+		}
+
+		@Override
+		public void onScanComplete(Result r) {
+			results.add(r);
+		}
+
+		@Override
+		public void onScanFailed(MoodstocksError e) {
+			++failures;
+		}
+	}
+
+	private static final Image IMG = new Image(new byte[1], 1, 1, 1, 0);
+
+	// sessions of a new scanner, in the order of its types.
+	private static List<ScannerSession> sessions(int options, ParallelScanner[] out) {
+		synchronized(ScannerSession.created) {
+			int from = ScannerSession.created.size();
+			out[0] = new ParallelScanner(null, options);
+			return new ArrayList<ScannerSession>(
+					ScannerSession.created.subList(from, ScannerSession.created.size()));
+		}
+	}
+
+	@Test
+	public void firstResultWins() {
+		ParallelScanner[] p = new ParallelScanner[1];
+		List<ScannerSession> s = sessions(Result.Type.EAN13 | Result.Type.QRCODE, p);
+		assertEquals(2, s.size());
+		Outcomes o = new Outcomes();
+		p[0].scan(o, IMG);
+		Result r = new Result(Result.Type.QRCODE, "x");
+		s.get(1).last.onScanComplete(r);
+		s.get(0).last.onScanComplete(null);
+		assertEquals(1, o.results.size());
+		assertSame(r, o.results.get(0));
+	}
+
+	@Test
+	public void ignoresCompletionsOfFormerScans() {
+		ParallelScanner[] p = new ParallelScanner[1];
+		List<ScannerSession> s = sessions(Result.Type.EAN13 | Result.Type.QRCODE, p);
+		Outcomes first = new Outcomes();
+		p[0].scan(first, IMG);
+		ScannerSession.ScanListener stale = s.get(0).last;
+		Outcomes second = new Outcomes();
+		p[0].scan(second, IMG);
+		// the first scan of session 0 reports late: it must not count.
+		stale.onScanComplete(new Result(Result.Type.EAN13, "old"));
+		stale.onScanComplete(null);
+		assertEquals(0, first.results.size());
+		assertEquals(0, second.results.size());
+		s.get(0).last.onScanComplete(null);
+		s.get(1).last.onScanComplete(null);
+		assertEquals(1, second.results.size());
+		assertNull(second.results.get(0));
+	}
+
+	@Test
+	public void reusesCallbacksUntilAScanIsAbandoned() {
+		ParallelScanner[] p = new ParallelScanner[1];
+		List<ScannerSession> s = sessions(Result.Type.EAN13 | Result.Type.QRCODE, p);
+		Outcomes o = new Outcomes();
+		p[0].scan(o, IMG);
+		ScannerSession.ScanListener c = s.get(0).last;
+		s.get(0).last.onScanComplete(null);
+		s.get(1).last.onScanComplete(null);
+		p[0].scan(o, IMG);
+		assertSame(c, s.get(0).last);
+		p[0].scanCancel();
+		p[0].scan(o, IMG);
+		assertNotSame(c, s.get(0).last);
+		// the cancelled scan reports late: it must not count.
+		c.onScanComplete(new Result(Result.Type.EAN13, "old"));
+		s.get(0).last.onScanComplete(null);
+		s.get(1).last.onScanComplete(null);
+		assertEquals(2, o.results.size());
+		assertNull(o.results.get(1));
+	}
+
+	@Test
+	public void completesRightAwayWithoutWorkers() {
+		ParallelScanner[] p = new ParallelScanner[1];
+		assertEquals(0, sessions(0, p).size());
+		Outcomes o = new Outcomes();
+		p[0].scan(o, IMG);
+		assertEquals(1, o.results.size());
+		assertNull(o.results.get(0));
+	}
+
+}
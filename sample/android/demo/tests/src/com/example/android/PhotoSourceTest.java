@@ -0,0 +1,42 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PhotoSourceTest {
+
+	@Test
+	public void subsamplesDownToTheMaxSize() {
+		assertEquals(1, PhotoSource.sampleSize(1280, 960, 1280));
+		assertEquals(2, PhotoSource.sampleSize(1281, 960, 1280));
+		// 2000 / 2 = 1000: within the limit, unlike 2000 itself.
+		assertEquals(2, PhotoSource.sampleSize(2000, 1500, 1280));
+		assertEquals(4, PhotoSource.sampleSize(3264, 2448, 1280));
+		assertEquals(4, PhotoSource.sampleSize(1000, 4000, 1280));
+		assertEquals(1, PhotoSource.sampleSize(320, 240, 1280));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsAnEmptyMaxSize() {
+		PhotoSource.sampleSize(320, 240, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsANegativeMaxSize() {
+		new PhotoSource(new java.io.File[0], -1, 0);
+	}
+
+	@Test
+	public void convertsToLuma() {
+		int[] argb = { 0xff000000, 0xffffffff, 0xffff0000, 0xff00ff00, 0xff0000ff };
+		byte[] luma = new byte[argb.length];
+		PhotoSource.luma(argb, argb.length, luma);
+		assertEquals(0, luma[0] & 0xff);
+		assertEquals(255, luma[1] & 0xff);
+		assertEquals(77, luma[2] & 0xff);
+		assertEquals(149, luma[3] & 0xff);
+		assertEquals(29, luma[4] & 0xff);
+	}
+
+}
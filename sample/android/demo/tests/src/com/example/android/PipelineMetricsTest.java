@@ -0,0 +1,82 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PipelineMetricsTest {
+
+	@Test
+	public void counters() {
+		PipelineMetrics m = new PipelineMetrics();
+		for (int i = 0; i < 5; ++i) {
+			m.frameReceived();
+		}
+		m.frameDropped();
+		m.frameScanned();
+		m.frameScanned();
+		m.resultFound();
+		assertEquals(5, m.getReceived());
+		assertEquals(1, m.getDropped());
+		assertEquals(2, m.getScanned());
+		assertEquals(1, m.getResults());
+		assertTrue(m.getFps() > 0);
+	}
+
+	@Test
+	public void instancesAreIndependent() {
+		PipelineMetrics a = new PipelineMetrics();
+		PipelineMetrics b = new PipelineMetrics();
+		a.frameReceived();
+		assertEquals(1, a.getReceived());
+		assertEquals(0, b.getReceived());
+	}
+
+	@Test
+	public void recordsMicroseconds() {
+		PipelineMetrics m = new PipelineMetrics();
+		// started 2 ms ago.
+		long start = System.nanoTime() - 2000000;
+		m.record(PipelineMetrics.SCAN, start);
+		LatencyHistogram.Snapshot s = m.snapshot(PipelineMetrics.SCAN);
+		assertEquals(1, s.getCount());
+		assertTrue(s.getMax()+" us", s.getMax() >= 2000 && s.getMax() < 2000000);
+		assertEquals(0, m.snapshot(PipelineMetrics.QUEUE).getCount());
+	}
+
+	@Test
+	public void reset() {
+		PipelineMetrics m = new PipelineMetrics();
+		m.frameReceived();
+		m.frameDropped();
+		m.frameScanned();
+		m.resultFound();
+		m.record(PipelineMetrics.TOTAL, System.nanoTime());
+		m.reset();
+		assertEquals(0, m.getReceived());
+		assertEquals(0, m.getDropped());
+		assertEquals(0, m.getScanned());
+		assertEquals(0, m.getResults());
+		assertEquals(0, m.snapshot(PipelineMetrics.TOTAL).getCount());
+	}
+
+	@Test
+	public void dump() {
+		PipelineMetrics m = new PipelineMetrics();
+		m.frameReceived();
+		m.frameReceived();
+		m.frameDropped();
+		m.frameScanned();
+		m.record(PipelineMetrics.RENDER, System.nanoTime());
+		String[] lines = m.dump().split("\n");
+		assertEquals(5, lines.length);
+		assertTrue(lines[0], lines[0].startsWith("fps="));
+		assertTrue(lines[0], lines[0].endsWith(" rx=2 drop=1 scan=1 res=0"));
+		assertTrue(lines[1], lines[1].startsWith("queue n=0 p50=0 p90=0 p99=0 max=0"));
+		assertTrue(lines[2], lines[2].startsWith("scan n=0 "));
+		assertTrue(lines[3], lines[3].startsWith("render n=1 p50="));
+		assertTrue(lines[4], lines[4].startsWith("total n=0 "));
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.example.android;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PreviewSizeCacheTest {
+
+	private static final String SIZES = "640x480,1280x720";
+
+	@Test(timeout = 2000)
+	public void writesOncePerSessionInTheBackground() throws Exception {
+		MemoryPreferences prefs = new MemoryPreferences();
+		PreviewSizeCache cache = new PreviewSizeCache(prefs.context(), 0);
+		assertFalse(cache.validate(SIZES, 1.5f));
+		cache.ban(1280, 720);
+		cache.confirm(640, 480);
+		cache.confirm(640, 480);
+		assertEquals(0, prefs.getCommits());
+		cache.save();
+		prefs.awaitCommits(1);
+		assertNotSame(Thread.currentThread(), prefs.getLastCommitter());
+		// nothing changed since.
+		cache.save();
+		Thread.sleep(50);
+		assertEquals(1, prefs.getCommits());
+	}
+
+	@Test(timeout = 2000)
+	public void restoresTheSavedValues() throws Exception {
+		MemoryPreferences prefs = new MemoryPreferences();
+		PreviewSizeCache cache = new PreviewSizeCache(prefs.context(), 0);
+		cache.validate(SIZES, 1.5f);
+		cache.ban(1280, 720);
+		cache.confirm(640, 480);
+		cache.save();
+		prefs.awaitCommits(1);
+
+		cache = new PreviewSizeCache(prefs.context(), 0);
+		assertTrue(cache.validate(SIZES, 1.5f));
+		assertTrue(cache.hasSize());
+		assertEquals(640, cache.getWidth());
+		assertEquals(480, cache.getHeight());
+		assertArrayEquals(new int[] { 1280, 720 }, cache.getBanned());
+	}
+
+	@Test(timeout = 2000)
+	public void forgetsEverythingWhenTheSizesChange() throws Exception {
+		MemoryPreferences prefs = new MemoryPreferences();
+		PreviewSizeCache cache = new PreviewSizeCache(prefs.context(), 0);
+		cache.validate(SIZES, 1.5f);
+		cache.ban(1280, 720);
+		cache.confirm(640, 480);
+		cache.save();
+		prefs.awaitCommits(1);
+
+		cache = new PreviewSizeCache(prefs.context(), 0);
+		assertFalse(cache.validate("640x480", 1.5f));
+		assertFalse(cache.hasSize());
+		assertEquals(0, cache.getBanned().length);
+		cache.save();
+		prefs.awaitCommits(2);
+		assertFalse(prefs.contains("0.width"));
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.Test;
+
+public class ResultCacheTest {
+
+	private static final ResultCache.Resolver NONE = new ResultCache.Resolver() {
+		@Override
+		public String resolve(int type, String value) {
+			return null;
+		}
+	};
+
+	private static File tempFile() throws Exception {
+		File f = File.createTempFile("results", ".cache");
+		f.deleteOnExit();
+		return f;
+	}
+
+	@Test
+	public void persistsNullPayloads() throws Exception {
+		FakeClock clock = new FakeClock(1000);
+		ResultCache cache = new ResultCache(8, 100, clock);
+		assertNull(cache.resolve(1, "123", NONE));
+		cache.put(2, "abc", "payload");
+		File f = tempFile();
+		cache.save(f);
+		ResultCache copy = new ResultCache(8, 100, clock);
+		copy.load(f);
+		assertEquals(2, copy.size());
+		assertEquals("payload", copy.resolve(2, "abc", NONE));
+		assertNull(copy.resolve(1, "123", NONE));
+		assertEquals(2, copy.getHits());
+	}
+
+	@Test
+	public void skipsExpiredEntries() throws Exception {
+		FakeClock clock = new FakeClock(1000);
+		ResultCache cache = new ResultCache(8, 100, clock);
+		cache.put(1, "old", "a");
+		clock.advance(60);
+		cache.put(1, "new", "b");
+		File f = tempFile();
+		clock.advance(50);
+		cache.save(f);
+		ResultCache copy = new ResultCache(8, 100, clock);
+		copy.load(f);
+		assertEquals(1, copy.size());
+	}
+
+	@Test
+	public void keepsEntriesResolvedBeforeTheLoad() throws Exception {
+		FakeClock clock = new FakeClock(1000);
+		ResultCache cache = new ResultCache(8, 100, clock);
+		cache.put(1, "123", "saved");
+		File f = tempFile();
+		cache.save(f);
+		ResultCache copy = new ResultCache(8, 100, clock);
+		copy.put(1, "123", "fresh");
+		copy.load(f);
+		assertEquals("fresh", copy.resolve(1, "123", NONE));
+	}
+
+	@Test
+	public void persistsLargePayloads() throws Exception {
+		FakeClock clock = new FakeClock(1000);
+		ResultCache cache = new ResultCache(8, 100, clock);
+		StringBuilder sb = new StringBuilder();
+		// more than 64 KB, with multi-byte characters.
+		while (sb.length() < 100000) sb.append("caf\u00e9 \u6f22\u5b57 ");
+		String large = sb.toString();
+		cache.put(1, "large", large);
+		cache.put(1, "small", "b");
+		File f = tempFile();
+		cache.save(f);
+		ResultCache copy = new ResultCache(8, 100, clock);
+		copy.load(f);
+		assertEquals(2, copy.size());
+		assertEquals(large, copy.resolve(1, "large", NONE));
+		assertEquals("b", copy.resolve(1, "small", NONE));
+	}
+
+	@Test
+	public void replacesTheFileOnlyOnceSaved() throws Exception {
+		FakeClock clock = new FakeClock(1000);
+		ResultCache cache = new ResultCache(8, 100, clock);
+		cache.put(1, "123", "a");
+		File f = tempFile();
+		cache.save(f);
+		File tmp = new File(f.getPath()+".tmp");
+		assertFalse(tmp.exists());
+		// the temporary file cannot be written: the save fails.
+		tmp.mkdir();
+		try {
+			cache.put(1, "456", "b");
+			cache.save(f);
+		} finally {
+			tmp.delete();
+		}
+		ResultCache copy = new ResultCache(8, 100, clock);
+		copy.load(f);
+		assertEquals(1, copy.size());
+		assertEquals("a", copy.resolve(1, "123", NONE));
+	}
+
+	@Test
+	public void ignoresCorruptLengths() throws Exception {
+		FakeClock clock = new FakeClock(1000);
+		ResultCache cache = new ResultCache(8, 100, clock);
+		cache.put(1, "123", "a");
+		File f = tempFile();
+		cache.save(f);
+		// length of the first value: version, count and type come first.
+		RandomAccessFile raf = new RandomAccessFile(f, "rw");
+		raf.seek(12);
+		raf.writeInt(Integer.MAX_VALUE);
+		raf.close();
+		ResultCache copy = new ResultCache(8, 100, clock);
+		copy.load(f);
+		assertEquals(0, copy.size());
+	}
+
+	@Test(timeout = 2000)
+	public void savesAndLoadsInTheBackground() throws Exception {
+		FakeClock clock = new FakeClock(1000);
+		ResultCache cache = new ResultCache(8, 100, clock);
+		cache.put(1, "123", "a");
+		File f = tempFile();
+		f.delete();
+		cache.saveInBackground(f);
+		// loads run after the saves requested before them.
+		ResultCache copy = new ResultCache(8, 100, clock);
+		copy.loadInBackground(f);
+		while (copy.size() == 0) Thread.sleep(5);
+		assertEquals("a", copy.resolve(1, "123", NONE));
+	}
+
+}
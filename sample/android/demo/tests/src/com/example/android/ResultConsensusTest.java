@@ -0,0 +1,86 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.moodstocks.android.Result;
+
+public class ResultConsensusTest {
+
+	private static final Result EAN = new Result(Result.Type.EAN13, "9782070612758");
+	private static final Result QR = new Result(Result.Type.QRCODE, "http://www.example.com");
+
+	@Test
+	public void confirmsAfterEnoughVotes() {
+		ResultConsensus c = new ResultConsensus(2, 3);
+		assertNull(c.add(EAN));
+		Result r = new Result(Result.Type.EAN13, "9782070612758");
+		assertSame(r, c.add(r));
+		assertSame(r, c.getConfirmed());
+	}
+
+	@Test
+	public void confirmsOnlyOnce() {
+		ResultConsensus c = new ResultConsensus(2, 3);
+		c.add(EAN);
+		c.add(EAN);
+		assertNull(c.add(EAN));
+		assertNull(c.add(null));
+		assertNull(c.add(EAN));
+	}
+
+	@Test
+	public void ignoresFlicker() {
+		ResultConsensus c = new ResultConsensus(2, 3);
+		assertNull(c.add(EAN));
+		assertNull(c.add(null));
+		assertNull(c.add(QR));
+		assertNull(c.add(null));
+		assertNull(c.add(EAN));
+		assertNull(c.getConfirmed());
+		assertEquals(1, c.confidence(EAN));
+		assertEquals(1, c.confidence(QR));
+	}
+
+	@Test
+	public void votesWithinTheWindow() {
+		ResultConsensus c = new ResultConsensus(2, 3);
+		c.add(EAN);
+		c.add(null);
+		c.add(null);
+		// the first vote slid out of the window.
+		assertNull(c.add(EAN));
+		assertSame(EAN, c.add(EAN));
+	}
+
+	@Test
+	public void switchesToANewResult() {
+		ResultConsensus c = new ResultConsensus(2, 3);
+		c.add(EAN);
+		c.add(EAN);
+		assertNull(c.add(QR));
+		assertSame(QR, c.add(QR));
+	}
+
+	@Test
+	public void singleVoteConfirmsRightAway() {
+		ResultConsensus c = new ResultConsensus(1, 1);
+		assertSame(EAN, c.add(EAN));
+		assertSame(QR, c.add(QR));
+	}
+
+	@Test
+	public void resetForgetsEverything() {
+		ResultConsensus c = new ResultConsensus(2, 3);
+		c.add(EAN);
+		c.add(EAN);
+		c.reset();
+		assertNull(c.getConfirmed());
+		assertNull(c.add(EAN));
+		assertSame(EAN, c.add(EAN));
+	}
+
+}
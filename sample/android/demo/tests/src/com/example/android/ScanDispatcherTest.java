@@ -0,0 +1,245 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ScanDispatcherTest {
+
+	// records frames, and keeps the scan in flight until told otherwise.
+	private static class Recorder implements ScanDispatcher.Listener {
+		final List<byte[]> scanned = new ArrayList<byte[]>();
+		final List<byte[]> released = new ArrayList<byte[]>();
+		final List<byte[]> retried = new ArrayList<byte[]>();
+		final List<Thread> threads = new ArrayList<Thread>();
+
+		@Override
+		public synchronized void onFrame(byte[] data, int orientation) {
+			scanned.add(data);
+			threads.add(Thread.currentThread());
+			notifyAll();
+		}
+
+		@Override
+		public synchronized void onRetry(byte[] data, int orientation) {
+			retried.add(data);
+			threads.add(Thread.currentThread());
+			notifyAll();
+		}
+
+		@Override
+		public synchronized void onFrameReleased(byte[] data) {
+			released.add(data);
+			notifyAll();
+		}
+
+		synchronized void awaitScanned(int n) throws InterruptedException {
+			while (scanned.size() < n) wait();
+		}
+
+		synchronized void awaitRetried(int n) throws InterruptedException {
+			while (retried.size() < n) wait();
+		}
+	}
+
+	@Test(timeout = 2000)
+	public void latestWinsKeepsTheNewestFrame() throws Exception {
+		Recorder r = new Recorder();
+		PipelineMetrics metrics = new PipelineMetrics();
+		ScanDispatcher d = new ScanDispatcher(r, ScanDispatcher.Policy.LATEST_WINS, 3, metrics);
+		d.start();
+		byte[] a = new byte[1], b = new byte[1], c = new byte[1];
+		d.submit(a, 0);
+		r.awaitScanned(1);
+		// `a` is in flight: `b` waits and is replaced by `c`.
+		d.submit(b, 0);
+		d.submit(c, 0);
+		synchronized(r) {
+			assertEquals(1, r.released.size());
+			assertSame(b, r.released.get(0));
+		}
+		d.done();
+		r.awaitScanned(2);
+		synchronized(r) {
+			assertSame(c, r.scanned.get(1));
+			assertSame(a, r.released.get(1));
+		}
+		d.done();
+		d.stop();
+		d.join();
+		assertEquals(3, d.getSubmitted());
+		assertEquals(1, d.getDropped());
+		assertEquals(2, d.getProcessed());
+		assertEquals(1, metrics.getDropped());
+	}
+
+	@Test(timeout = 2000)
+	public void dropOldestQueuesUpToCapacity() throws Exception {
+		Recorder r = new Recorder();
+		ScanDispatcher d = new ScanDispatcher(r, ScanDispatcher.Policy.DROP_OLDEST, 2, new PipelineMetrics());
+		d.start();
+		byte[][] f = new byte[4][1];
+		d.submit(f[0], 0);
+		r.awaitScanned(1);
+		d.submit(f[1], 0);
+		d.submit(f[2], 0);
+		d.submit(f[3], 0);
+		synchronized(r) {
+			assertSame(f[1], r.released.get(0));
+		}
+		d.done();
+		r.awaitScanned(2);
+		d.done();
+		r.awaitScanned(3);
+		synchronized(r) {
+			assertSame(f[2], r.scanned.get(1));
+			assertSame(f[3], r.scanned.get(2));
+		}
+		d.done();
+		d.stop();
+		d.join();
+	}
+
+	@Test(timeout = 2000)
+	public void stopReleasesPendingFrames() throws Exception {
+		Recorder r = new Recorder();
+		ScanDispatcher d = new ScanDispatcher(r, ScanDispatcher.Policy.DROP_OLDEST, 3, new PipelineMetrics());
+		d.start();
+		byte[] a = new byte[1], b = new byte[1];
+		d.submit(a, 0);
+		r.awaitScanned(1);
+		d.submit(b, 0);
+		d.stop();
+		d.join();
+		assertFalse(d.isRunning());
+		synchronized(r) {
+			assertEquals(1, r.released.size());
+			assertSame(b, r.released.get(0));
+		}
+		// the frame in flight comes back once its scan is over.
+		d.done();
+		synchronized(r) {
+			assertSame(a, r.released.get(1));
+		}
+		assertFalse(d.submit(new byte[1], 0));
+	}
+
+	@Test(timeout = 2000)
+	public void blockNeverWaits() throws Exception {
+		Recorder r = new Recorder();
+		ScanDispatcher d = new ScanDispatcher(r, ScanDispatcher.Policy.BLOCK, 2, new PipelineMetrics());
+		d.start();
+		byte[][] f = new byte[4][1];
+		d.submit(f[0], 0);
+		r.awaitScanned(1);
+		assertTrue(d.submit(f[1], 0));
+		assertTrue(d.submit(f[2], 0));
+		// the queue is full: the frame is handed back, nothing is evicted.
+		assertFalse(d.submit(f[3], 0));
+		synchronized(r) {
+			assertEquals(1, r.released.size());
+			assertSame(f[3], r.released.get(0));
+		}
+		d.done();
+		r.awaitScanned(2);
+		synchronized(r) {
+			assertSame(f[1], r.scanned.get(1));
+		}
+		d.done();
+		d.stop();
+		d.join();
+	}
+
+	@Test(timeout = 2000)
+	public void retryDeliversTheFrameAgainOnTheWorker() throws Exception {
+		Recorder r = new Recorder();
+		ScanDispatcher d = new ScanDispatcher(r, ScanDispatcher.Policy.LATEST_WINS, 1, new PipelineMetrics());
+		assertFalse(d.retry());
+		d.start();
+		byte[] a = new byte[1], b = new byte[1];
+		d.submit(a, 0);
+		r.awaitScanned(1);
+		d.submit(b, 0);
+		assertTrue(d.retry());
+		r.awaitRetried(1);
+		synchronized(r) {
+			assertSame(a, r.retried.get(0));
+			assertSame(r.threads.get(0), r.threads.get(1));
+			// still in flight: the queued frame waits.
+			assertEquals(1, r.scanned.size());
+			assertEquals(0, r.released.size());
+		}
+		d.done();
+		r.awaitScanned(2);
+		synchronized(r) {
+			assertSame(b, r.scanned.get(1));
+			assertSame(a, r.released.get(0));
+		}
+		d.done();
+		d.stop();
+		d.join();
+		assertEquals(2, d.getProcessed());
+	}
+
+	@Test(timeout = 2000)
+	public void stopReleasesAFrameWaitingForItsRetry() throws Exception {
+		Recorder r = new Recorder();
+		ScanDispatcher d = new ScanDispatcher(r, ScanDispatcher.Policy.LATEST_WINS, 1, new PipelineMetrics());
+		d.start();
+		byte[] a = new byte[1];
+		d.submit(a, 0);
+		r.awaitScanned(1);
+		synchronized(d) {
+			// the worker cannot pick the retry up before the stop.
+			d.retry();
+			d.stop();
+		}
+		d.join();
+		synchronized(r) {
+			assertEquals(0, r.retried.size());
+			assertEquals(1, r.released.size());
+			assertSame(a, r.released.get(0));
+		}
+		d.done();
+		synchronized(r) {
+			assertEquals(1, r.released.size());
+		}
+	}
+
+	// finishes every scan as soon as it starts.
+	private static class Scanner extends Recorder {
+		ScanDispatcher dispatcher;
+
+		@Override
+		public void onFrame(byte[] data, int orientation) {
+			super.onFrame(data, orientation);
+			dispatcher.done();
+		}
+	}
+
+	@Test(timeout = 2000)
+	public void everyFrameComesBackOnce() throws Exception {
+		Scanner r = new Scanner();
+		ScanDispatcher d = new ScanDispatcher(r, ScanDispatcher.Policy.DROP_OLDEST, 2, new PipelineMetrics());
+		r.dispatcher = d;
+		d.start();
+		for (int i = 0; i < 1000; ++i) {
+			d.submit(new byte[1], 0);
+		}
+		d.stop();
+		d.join();
+		synchronized(r) {
+			assertEquals(1000, r.released.size());
+		}
+		assertEquals(1000, d.getSubmitted());
+		// frames still queued at `stop()` are neither dropped nor processed.
+		assertTrue(d.getDropped() + d.getProcessed() <= 1000);
+	}
+
+}
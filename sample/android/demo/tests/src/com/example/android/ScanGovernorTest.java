@@ -0,0 +1,69 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ScanGovernorTest {
+
+	/* runs scans lasting `duration` ms for `ms` ms, finding nothing.
+	 * A frame arrives every ms.
+	 */
+	private static void run(ScanGovernor g, FakeClock clock, long duration, long ms) {
+		for (long end = clock.now() + ms; clock.now() < end; ) {
+			if (g.shouldScan()) {
+				clock.advance(duration);
+				g.onScan(duration, false);
+			}
+			clock.advance(1);
+		}
+	}
+
+	@Test
+	public void backsOffFromFastScans() {
+		FakeClock clock = new FakeClock(10000);
+		ScanGovernor g = new ScanGovernor(clock);
+		// 0 ms scans: nothing for the duty cycle to throttle.
+		run(g, clock, 0, ScanGovernor.BURST);
+		assertTrue(g.isIdle());
+		assertEquals(0, g.getInterval());
+		assertTrue(g.shouldScan());
+		g.onScan(0, false);
+		assertEquals(ScanGovernor.MIN_IDLE_INTERVAL, g.getInterval());
+		run(g, clock, 0, 10000);
+		assertEquals(ScanGovernor.MAX_INTERVAL, g.getInterval());
+	}
+
+	@Test
+	public void neverExceedsTheDutyCycle() {
+		FakeClock clock = new FakeClock(10000);
+		ScanGovernor g = new ScanGovernor(clock);
+		run(g, clock, 100, 1000);
+		assertEquals((long)(100/ScanGovernor.MAX_DUTY), g.getInterval());
+		assertEquals(100, g.getLatency(), 0.01f);
+		// slow scans are spaced even when idle beyond MAX_INTERVAL.
+		run(g, clock, 2000, 20000);
+		assertTrue(g.getInterval() > ScanGovernor.MAX_INTERVAL);
+	}
+
+	@Test
+	public void resultsAndSceneChangesRestartTheBurst() {
+		FakeClock clock = new FakeClock(10000);
+		ScanGovernor g = new ScanGovernor(clock);
+		run(g, clock, 10, ScanGovernor.BURST + 5000);
+		assertTrue(g.getInterval() > 100);
+		g.onSceneChange();
+		assertFalse(g.isIdle());
+		assertEquals((long)(g.getLatency()/ScanGovernor.MAX_DUTY), g.getInterval());
+		run(g, clock, 10, ScanGovernor.BURST + 5000);
+		clock.advance(ScanGovernor.MAX_INTERVAL);
+		assertTrue(g.shouldScan());
+		g.onScan(10, true);
+		assertFalse(g.isIdle());
+		assertEquals(1, g.getHits());
+		assertTrue(g.getSkipped() > 0);
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ScanRegionTest {
+
+	@Test
+	public void centersTheRegion() {
+		ScanRegion r = new ScanRegion();
+		r.setCentered(0.5f);
+		r.layout(640, 480);
+		assertEquals(160, r.getX());
+		assertEquals(120, r.getY());
+		assertEquals(320, r.getWidth());
+		assertEquals(240, r.getHeight());
+		assertFalse(r.isAnchored());
+	}
+
+	@Test
+	public void clipsWithoutForgettingTheRequest() {
+		ScanRegion r = new ScanRegion();
+		r.set(100, 50, 500, 400);
+		r.layout(320, 240);
+		assertEquals(100, r.getX());
+		assertEquals(50, r.getY());
+		assertEquals(220, r.getWidth());
+		assertEquals(190, r.getHeight());
+		// back to a larger preview: the requested rectangle is restored.
+		r.layout(800, 600);
+		assertEquals(100, r.getX());
+		assertEquals(50, r.getY());
+		assertEquals(500, r.getWidth());
+		assertEquals(400, r.getHeight());
+	}
+
+	@Test
+	public void clipsNegativeOrigins() {
+		ScanRegion r = new ScanRegion();
+		r.set(-10, -20, 100, 100);
+		r.layout(640, 480);
+		assertTrue(r.isAnchored());
+		assertEquals(90, r.getWidth());
+		assertEquals(80, r.getHeight());
+	}
+
+	@Test
+	public void scansTheWholeFrameForAnEmptyRegion() {
+		ScanRegion r = new ScanRegion();
+		r.set(700, 0, 100, 100);
+		r.layout(640, 480);
+		assertEquals(0, r.getX());
+		assertEquals(640, r.getWidth());
+		assertEquals(480, r.getHeight());
+	}
+
+	@Test
+	public void packsTheRegionRows() {
+		int w = 8, h = 6;
+		byte[] frame = new byte[w*h*3/2];
+		for (int i = 0; i < w*h; ++i) frame[i] = (byte)i;
+		ScanRegion r = new ScanRegion();
+		r.set(2, 1, 3, 2);
+		r.layout(w, h);
+		byte[] crop = r.pack(frame, w);
+		byte[] expected = { 10, 11, 12, 18, 19, 20 };
+		for (int i = 0; i < expected.length; ++i) {
+			assertEquals(expected[i], crop[i]);
+		}
+		// the buffer is reused.
+		assertSame(crop, r.pack(frame, w));
+	}
+
+}
@@ -0,0 +1,90 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ScanStatusTest {
+
+	@Test
+	public void startsClean() {
+		ScanStatus s = new ScanStatus();
+		assertFalse(s.isDirty());
+		assertFalse(s.hasResult());
+	}
+
+	@Test
+	public void marksOnlyChangedFields() {
+		ScanStatus s = new ScanStatus();
+		s.setDecoding(false, true, true);
+		assertTrue(s.isDirty(ScanStatus.DECODE));
+		assertFalse(s.isDirty(ScanStatus.IMAGES));
+		assertFalse(s.isDirty(ScanStatus.RESULT));
+		s.clearDirty();
+		s.setDecoding(false, true, true);
+		s.setImages(0);
+		assertFalse(s.isDirty());
+		s.setImages(12);
+		assertTrue(s.isDirty(ScanStatus.IMAGES));
+		assertEquals(12, s.getImages());
+	}
+
+	@Test
+	public void diffsResults() {
+		ScanStatus s = new ScanStatus();
+		s.setResult(2, "9782070612758");
+		assertTrue(s.isDirty(ScanStatus.RESULT));
+		s.clearDirty();
+		s.setResult(2, new String("9782070612758"));
+		assertFalse(s.isDirty());
+		s.setResult(4, "9782070612758");
+		assertTrue(s.isDirty(ScanStatus.RESULT));
+		s.clearDirty();
+		s.setResult(4, null);
+		assertTrue(s.isDirty(ScanStatus.RESULT));
+		assertNull(s.getResultValue());
+	}
+
+	@Test
+	public void clearsResultsOnce() {
+		ScanStatus s = new ScanStatus();
+		s.clearResult();
+		assertFalse(s.isDirty());
+		s.setResult(2, "x");
+		s.clearDirty();
+		s.clearResult();
+		assertTrue(s.isDirty(ScanStatus.RESULT));
+		assertFalse(s.hasResult());
+		s.clearDirty();
+		s.clearResult();
+		assertFalse(s.isDirty());
+	}
+
+	@Test
+	public void invalidateMarksEverything() {
+		ScanStatus s = new ScanStatus();
+		s.invalidate();
+		assertTrue(s.isDirty(ScanStatus.DECODE));
+		assertTrue(s.isDirty(ScanStatus.IMAGES));
+		assertTrue(s.isDirty(ScanStatus.RESULT));
+	}
+
+	@Test
+	public void labels() {
+		assertEquals("[ ] EAN", Overlay.eanLabel(false, false));
+		assertEquals("[X] EAN (8)", Overlay.eanLabel(true, false));
+		assertEquals("[X] EAN (13)", Overlay.eanLabel(false, true));
+		assertEquals("[X] EAN (8,13)", Overlay.eanLabel(true, true));
+		assertEquals("[X] QR Codes", Overlay.qrLabel(true));
+		assertEquals("[ ] QR Codes", Overlay.qrLabel(false));
+		assertEquals("[X] 42 images", Overlay.imagesLabel(42));
+		// constant labels are shared, not rebuilt.
+		assertSame(Overlay.eanLabel(true, true), Overlay.eanLabel(true, true));
+		assertSame(Overlay.qrLabel(false), Overlay.qrLabel(false));
+	}
+
+}
@@ -0,0 +1,171 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import android.content.Context;
+import android.os.Handler;
+
+import com.moodstocks.android.MoodstocksError;
+import com.moodstocks.android.Scanner;
+
+public class ScannerLoaderTest {
+
+	// fails the first `failures` opens, each open waiting for `gate`.
+	private static class FakeScanner extends Scanner {
+		final CountDownLatch gate;
+		int failures;
+		int gets = 0;
+		int opens = 0;
+		int closes = 0;
+
+		FakeScanner(int failures, CountDownLatch gate) {
+			this.failures = failures;
+			this.gate = gate;
+		}
+
+		@Override
+		public void open(Context c, String f) throws MoodstocksError {
+			try {
+				gate.await();
+			} catch (InterruptedException e) {
+				throw new MoodstocksError("interrupted", MoodstocksError.Code.ABORT);
+			}
+			synchronized(this) {
+				++opens;
+				if (failures > 0) {
+					--failures;
+					throw new MoodstocksError("no file", MoodstocksError.Code.NOFILE);
+				}
+			}
+		}
+
+		@Override
+		public int count() {
+			return 42;
+		}
+
+		@Override
+		public synchronized void close() {
+			++closes;
+			notifyAll();
+		}
+
+		synchronized void awaitClosed() throws InterruptedException {
+			while (closes == 0) wait();
+		}
+	}
+
+	private static final CountDownLatch OPEN = new CountDownLatch(0);
+
+	private static ScannerLoader loader(final FakeScanner s) {
+		ScannerLoader l = new ScannerLoader(new Handler(), Clock.SYSTEM);
+		l.setFactory(new ScannerLoader.Factory() {
+			@Override
+			public Scanner get() {
+				synchronized(s) {
+					++s.gets;
+				}
+				return s;
+			}
+		});
+		return l;
+	}
+
+	@Test(timeout = 5000)
+	public void opensAndCloses() throws Exception {
+		FakeScanner s = new FakeScanner(0, OPEN);
+		ScannerLoader l = loader(s);
+		assertEquals(ScannerLoader.IDLE, l.getState());
+		assertNull(l.getScanner());
+		l.open(new Context(), "ms.db", null);
+		assertEquals(ScannerLoader.READY, l.await(5000));
+		assertSame(s, l.getScanner());
+		assertEquals(42, l.getCount());
+		assertNull(l.getError());
+		l.close();
+		assertEquals(ScannerLoader.CLOSED, l.getState());
+		assertNull(l.getScanner());
+		assertEquals(1, s.closes);
+	}
+
+	@Test(timeout = 5000)
+	public void opensOnlyOnce() throws Exception {
+		CountDownLatch gate = new CountDownLatch(1);
+		FakeScanner s = new FakeScanner(0, gate);
+		ScannerLoader l = loader(s);
+		l.open(new Context(), "ms.db", null);
+		l.open(new Context(), "ms.db", null);
+		assertEquals(ScannerLoader.OPENING, l.getState());
+		gate.countDown();
+		assertEquals(ScannerLoader.READY, l.await(5000));
+		l.open(new Context(), "ms.db", null);
+		assertEquals(ScannerLoader.READY, l.getState());
+		assertEquals(1, s.gets);
+		l.close();
+	}
+
+	@Test(timeout = 5000)
+	public void failureCanBeRetried() throws Exception {
+		FakeScanner s = new FakeScanner(1, OPEN);
+		ScannerLoader l = loader(s);
+		l.open(new Context(), "ms.db", null);
+		assertEquals(ScannerLoader.FAILED, l.await(5000));
+		assertEquals(MoodstocksError.Code.NOFILE, l.getError().getErrorCode());
+		assertNull(l.getScanner());
+		l.open(new Context(), "ms.db", null);
+		assertEquals(ScannerLoader.READY, l.await(5000));
+		assertNull(l.getError());
+		assertSame(s, l.getScanner());
+		assertEquals(2, s.opens);
+		l.close();
+	}
+
+	@Test(timeout = 5000)
+	public void closeWhileOpening() throws Exception {
+		CountDownLatch gate = new CountDownLatch(1);
+		FakeScanner s = new FakeScanner(0, gate);
+		ScannerLoader l = loader(s);
+		l.open(new Context(), "ms.db", null);
+		l.close();
+		assertEquals(ScannerLoader.CLOSED, l.getState());
+		// does not wait for the opening to end.
+		assertEquals(ScannerLoader.CLOSED, l.await(5000));
+		gate.countDown();
+		// closed by the loader thread once open.
+		s.awaitClosed();
+		assertEquals(ScannerLoader.CLOSED, l.getState());
+		assertNull(l.getScanner());
+		assertEquals(1, s.closes);
+	}
+
+	@Test(timeout = 5000)
+	public void closedIsFinal() throws Exception {
+		FakeScanner s = new FakeScanner(1, OPEN);
+		ScannerLoader l = loader(s);
+		l.open(new Context(), "ms.db", null);
+		assertEquals(ScannerLoader.FAILED, l.await(5000));
+		l.close();
+		assertEquals(ScannerLoader.CLOSED, l.getState());
+		l.open(new Context(), "ms.db", null);
+		assertEquals(ScannerLoader.CLOSED, l.getState());
+		assertEquals(1, s.gets);
+	}
+
+	@Test(timeout = 5000)
+	public void awaitTimesOut() throws Exception {
+		CountDownLatch gate = new CountDownLatch(1);
+		ScannerLoader l = loader(new FakeScanner(0, gate));
+		l.open(new Context(), "ms.db", null);
+		assertEquals(ScannerLoader.OPENING, l.await(20));
+		gate.countDown();
+		assertEquals(ScannerLoader.READY, l.await(5000));
+		l.close();
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SceneDetectorTest {
+
+	private static final int W = 640;
+	private static final int H = 480;
+	private static final int PAN = 400;
+
+	private final Random random = new Random(3);
+	private final byte[] texture = new byte[(W+PAN)*H];
+	private final byte[] frame = new byte[W*H];
+
+	public SceneDetectorTest() {
+		for (int j = 0; j < H; ++j) {
+			for (int i = 0; i < W+PAN; ++i) {
+				texture[j*(W+PAN) + i] = (byte)(128 + 100*Math.sin(i/37.0)*Math.cos(j/23.0));
+			}
+		}
+	}
+
+	// the texture seen from `shift` px to the right, plus +/- 4 of noise and `gain`.
+	private byte[] frame(int shift, int gain) {
+		for (int j = 0; j < H; ++j) {
+			for (int i = 0; i < W; ++i) {
+				int v = (texture[j*(W+PAN) + i + shift] & 0xff) + random.nextInt(9) - 4 + gain;
+				frame[j*W + i] = (byte)Math.max(0, Math.min(255, v));
+			}
+		}
+		return frame;
+	}
+
+	// checks a frame, and scans it (commits it) unless it is the same.
+	private static int scan(SceneDetector d, byte[] f) {
+		int o = d.check(f, 0, 0, W, H, W);
+		if (o != SceneDetector.SAME) d.commit();
+		return o;
+	}
+
+	@Test
+	public void skipsStillFramesAndCatchesPans() {
+		SceneDetector d = new SceneDetector();
+		int[] outcomes = new int[3];
+		for (int k = 0; k < 30; ++k) {
+			++outcomes[scan(d, frame(0, 0))];
+		}
+		// the first frame, then a refresh after every DEFAULT_MAX_SKIPS skips.
+		assertEquals(1, outcomes[SceneDetector.CHANGED]);
+		assertEquals(1, outcomes[SceneDetector.REFRESH]);
+		assertEquals(28, outcomes[SceneDetector.SAME]);
+		// a pan of 20 px per frame is a change every time.
+		for (int k = 1; k <= 10; ++k) {
+			assertEquals(SceneDetector.CHANGED, scan(d, frame(20*k, 0)));
+		}
+	}
+
+	@Test
+	public void ignoresExposureChanges() {
+		SceneDetector d = new SceneDetector();
+		scan(d, frame(0, 0));
+		assertEquals(SceneDetector.SAME, scan(d, frame(0, 20)));
+		assertTrue(d.getLastDifference() < SceneDetector.DEFAULT_THRESHOLD);
+	}
+
+	@Test
+	public void onlyScannedFramesBecomeTheReference() {
+		SceneDetector d = new SceneDetector();
+		scan(d, frame(0, 0));
+		// a change whose scan is skipped, e.g. by the governor...
+		assertEquals(SceneDetector.CHANGED, d.check(frame(60, 0), 0, 0, W, H, W));
+		// ...is still a change for the next frame.
+		assertEquals(SceneDetector.CHANGED, d.check(frame(60, 0), 0, 0, W, H, W));
+		d.commit();
+		assertEquals(SceneDetector.SAME, d.check(frame(60, 0), 0, 0, W, H, W));
+		// a second commit without a check in between changes nothing.
+		d.commit();
+		assertEquals(SceneDetector.CHANGED, d.check(frame(0, 0), 0, 0, W, H, W));
+	}
+
+}
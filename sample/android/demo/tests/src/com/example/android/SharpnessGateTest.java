@@ -0,0 +1,78 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SharpnessGateTest {
+
+	private static final int W = 64;
+	private static final int H = 48;
+
+	// vertical stripes of the given contrast.
+	private static byte[] frame(int contrast) {
+		byte[] data = new byte[W*H*3/2];
+		for (int y = 0; y < H; ++y) {
+			for (int x = 0; x < W; ++x) {
+				data[y*W + x] = (byte)(128 + ((x & 1) == 0 ? contrast : -contrast)/2);
+			}
+		}
+		return data;
+	}
+
+	private static boolean accept(SharpnessGate g, byte[] data) {
+		return g.accept(data, 0, 0, W, H, W);
+	}
+
+	@Test
+	public void measuresGradients() {
+		assertEquals(0.0f, SharpnessGate.measure(frame(0), 0, 0, W, H, W, 1), 0.0f);
+		assertTrue(SharpnessGate.measure(frame(100), 0, 0, W, H, W, 1) > 0);
+	}
+
+	@Test
+	public void rejectsBlurryFrames() {
+		SharpnessGate g = new SharpnessGate(1, 0.6f);
+		byte[] sharp = frame(100);
+		for (int i = 0; i < 10; ++i) {
+			assertTrue(accept(g, sharp));
+		}
+		assertFalse(accept(g, frame(20)));
+		assertEquals(1, g.getMisses());
+	}
+
+	@Test
+	public void blurDoesNotLowerTheThreshold() {
+		SharpnessGate g = new SharpnessGate(1, 0.6f);
+		byte[] sharp = frame(100);
+		byte[] blurry = frame(60);
+		for (int i = 0; i < 10; ++i) {
+			accept(g, sharp);
+		}
+		float average = g.getAverageScore();
+		for (int i = 0; i < SharpnessGate.MAX_REJECTS - 1; ++i) {
+			assertFalse(accept(g, blurry));
+		}
+		assertEquals(average, g.getAverageScore(), 0.0f);
+	}
+
+	@Test
+	public void remeasuresAfterALongRejection() {
+		SharpnessGate g = new SharpnessGate(1, 0.6f);
+		byte[] sharp = frame(100);
+		byte[] flat = frame(40);
+		for (int i = 0; i < 10; ++i) {
+			accept(g, sharp);
+		}
+		for (int i = 0; i < SharpnessGate.MAX_REJECTS; ++i) {
+			assertFalse(accept(g, flat));
+		}
+		// the less textured scene becomes the new reference.
+		for (int i = 0; i < 10; ++i) {
+			assertTrue(accept(g, flat));
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import android.view.View;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+public class SplashTest {
+
+	// counts the label updates.
+	private static class Label extends TextView {
+		int updates = 0;
+		CharSequence text = null;
+
+		@Override
+		public void setText(CharSequence s) {
+			++updates;
+			text = s;
+		}
+	}
+
+	// splash laid out with stand-in views.
+	private static class TestSplash extends Splash {
+		final ProgressBar infinite = new ProgressBar();
+		final ProgressBar progress = new ProgressBar();
+		final Label label = new Label();
+
+		TestSplash() {
+			super(null, null);
+		}
+
+		@Override
+		public View findViewById(int id) {
+			if (id == R.id.infinite) return infinite;
+			if (id == R.id.progress) return progress;
+			if (id == R.id.splash_text) return label;
+			return null;
+		}
+	}
+
+	@Test
+	public void labels() {
+		assertEquals("42 / 100", Splash.progressLabel(100, 42));
+		StringBuilder b = new StringBuilder("x");
+		assertSame(b, Splash.progressLabel(50000, 0, b));
+		assertEquals("x0 / 50000", b.toString());
+		b.setLength(0);
+		assertEquals("-1 / 2147483647", Splash.progressLabel(Integer.MAX_VALUE, -1, b).toString());
+	}
+
+	@Test
+	public void showsEveryUpdate() {
+		TestSplash s = new TestSplash();
+		for (int i = 1; i <= 50000; ++i) {
+			s.update(50000, i);
+		}
+		assertEquals(50000, s.label.updates);
+		assertEquals("50000 / 50000", s.label.text.toString());
+	}
+
+	@Test
+	public void doesNotAllocatePerUpdate() {
+		TestSplash s = new TestSplash();
+		// warm up, so that nothing is left to load or compile lazily.
+		for (int i = 1; i <= 50000; ++i) {
+			s.update(50000, i);
+		}
+		s.show(true);
+		long before = Allocations.current();
+		for (int i = 1; i <= 50000; ++i) {
+			s.update(50000, i);
+		}
+		long allocated = Allocations.current() - before;
+		assertTrue(allocated+" bytes allocated", allocated < 1024);
+	}
+
+}
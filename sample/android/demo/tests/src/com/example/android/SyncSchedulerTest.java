@@ -0,0 +1,182 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.moodstocks.android.MoodstocksError;
+import com.moodstocks.android.Scanner;
+
+public class SyncSchedulerTest {
+
+	// stand-in for the scanner, whose syncs end when the test says so.
+	private static class Source implements SyncScheduler.Source {
+		boolean syncing = false;
+		boolean connected = true;
+		int syncs = 0;
+		Scanner.SyncListener listener = null;
+
+		@Override
+		public boolean isSyncing() {
+			return syncing;
+		}
+
+		@Override
+		public boolean isConnected() {
+			return connected;
+		}
+
+		@Override
+		public void sync(Scanner.SyncListener l) {
+			++syncs;
+			syncing = true;
+			listener = l;
+			l.onSyncStart();
+		}
+
+		void complete() {
+			syncing = false;
+			listener.onSyncComplete();
+		}
+
+		void fail(int code) {
+			syncing = false;
+			listener.onSyncFailed(new MoodstocksError("failed", code));
+		}
+	}
+
+	private static final Scanner.SyncListener NONE = new Scanner.SyncListener() {
+		@Override
+		public void onSyncStart() {
+			// void implementation
+		}
+
+		@Override
+		public void onSyncComplete() {
+			// void implementation
+		}
+
+		@Override
+		public void onSyncFailed(MoodstocksError e) {
+			// void implementation
+		}
+
+		@Override
+		public void onSyncProgress(int total, int current) {
+			// void implementation
+		}
+	};
+
+	private final Source source = new Source();
+	private final MemoryPreferences prefs = new MemoryPreferences();
+	private final FakeClock clock = new FakeClock(1000000000000L);
+
+	private SyncScheduler scheduler() {
+		return new SyncScheduler(source, prefs, clock, new Random(0));
+	}
+
+	@Test
+	public void schedulesTheNextSyncADayLater() {
+		SyncScheduler s = scheduler();
+		assertTrue(s.syncIfDue(NONE));
+		long now = clock.now();
+		source.complete();
+		assertEquals(now, s.getLastSuccess());
+		long next = s.getNextSync() - now;
+		assertTrue("next sync in "+next+" ms", next >= SyncScheduler.INTERVAL);
+		assertTrue("next sync in "+next+" ms", next < SyncScheduler.INTERVAL + SyncScheduler.JITTER);
+		clock.advance(next - 1);
+		assertFalse(s.syncIfDue(NONE));
+		clock.advance(1);
+		assertTrue(s.syncIfDue(NONE));
+		assertEquals(2, source.syncs);
+	}
+
+	@Test
+	public void survivesProcessRestarts() {
+		SyncScheduler s = scheduler();
+		s.syncNow(NONE);
+		source.complete();
+		// a new process reads the schedule back.
+		SyncScheduler t = scheduler();
+		assertEquals(s.getNextSync(), t.getNextSync());
+		assertFalse(t.syncIfDue(NONE));
+		assertEquals(1, source.syncs);
+	}
+
+	@Test
+	public void backsOffExponentiallyOnNetworkFailures() {
+		SyncScheduler s = scheduler();
+		long d = SyncScheduler.MIN_BACKOFF;
+		for (int i = 1; i <= 12; ++i) {
+			assertTrue(s.syncIfDue(NONE));
+			source.fail(MoodstocksError.Code.NOCONN);
+			assertEquals(i, s.getFailures());
+			assertEquals(MoodstocksError.Code.NOCONN, s.getLastError());
+			// jittered within [d/2, d[.
+			long delay = s.getNextSync() - clock.now();
+			assertTrue("delay "+delay+" after "+i+" failures", delay >= d/2 && delay < d);
+			clock.advance(delay);
+			d = Math.min(2*d, SyncScheduler.MAX_BACKOFF);
+		}
+		assertTrue(s.syncIfDue(NONE));
+		source.complete();
+		assertEquals(0, s.getFailures());
+		assertEquals(MoodstocksError.Code.SUCCESS, s.getLastError());
+	}
+
+	@Test
+	public void waitsTheLongestOnOtherFailures() {
+		SyncScheduler s = scheduler();
+		s.syncNow(NONE);
+		source.fail(MoodstocksError.Code.AUTH);
+		long delay = s.getNextSync() - clock.now();
+		assertTrue("delay "+delay, delay >= SyncScheduler.MAX_BACKOFF/2);
+	}
+
+	@Test
+	public void neverRunsTwoSyncsAtOnce() {
+		SyncScheduler s = scheduler();
+		assertTrue(s.syncNow(NONE));
+		assertFalse(s.syncNow(NONE));
+		assertFalse(s.syncIfDue(NONE));
+		assertEquals(1, source.syncs);
+		source.complete();
+		assertTrue(s.syncNow(NONE));
+	}
+
+	@Test
+	public void waitsForTheNetwork() {
+		SyncScheduler s = scheduler();
+		source.connected = false;
+		assertFalse(s.syncIfDue(NONE));
+		// not a failure: the sync is still due.
+		assertEquals(0, s.getFailures());
+		assertTrue(s.getNextSync() <= clock.now());
+		// an explicit sync is attempted anyway.
+		assertTrue(s.syncNow(NONE));
+		source.fail(MoodstocksError.Code.NOCONN);
+		clock.advance(SyncScheduler.MIN_BACKOFF);
+		assertFalse(s.syncIfDue(NONE));
+		source.connected = true;
+		assertTrue(s.syncIfDue(NONE));
+	}
+
+	@Test
+	public void boundsTheDelayWhenTheClockGoesBack() {
+		SyncScheduler s = scheduler();
+		s.syncNow(NONE);
+		source.complete();
+		// the clock is set back by a year.
+		clock.advance(-365*SyncScheduler.INTERVAL);
+		long delay = s.getNextSync() - clock.now();
+		assertEquals(SyncScheduler.INTERVAL + SyncScheduler.JITTER, delay);
+		clock.advance(delay);
+		assertTrue(s.syncIfDue(NONE));
+	}
+
+}
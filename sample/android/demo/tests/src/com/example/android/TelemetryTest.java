@@ -0,0 +1,103 @@
+package com.example.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TelemetryTest {
+
+	@Rule
+	public TemporaryFolder dir = new TemporaryFolder();
+
+	// number of events in the report of `d`.
+	private static long events(TelemetryDecoder d) {
+		String r = d.report();
+		return Long.parseLong(r.substring(0, r.indexOf(' ')));
+	}
+
+	@Test(timeout = 30000)
+	public void concurrentWritersLoseNothingSilently() throws Exception {
+		File f = new File(dir.getRoot(), "t.bin");
+		final Telemetry t = new Telemetry(Clock.WALL);
+		t.start(f);
+		Thread[] writers = new Thread[4];
+		for (int k = 0; k < writers.length; ++k) {
+			writers[k] = new Thread() {
+				@Override
+				public void run() {
+					int s = t.beginSession();
+					for (int i = 0; i < 5000; ++i) {
+						t.scan(s, i % 500, i % 7 == 0 ? 0x80000000 : 0);
+						if (i % 100 == 0) Thread.yield();
+					}
+					t.endSession(s, 5000, 5000);
+				}
+			};
+			writers[k].start();
+		}
+		// flush while the writers are busy, as the background flusher does.
+		boolean alive = true;
+		while (alive) {
+			t.flush();
+			alive = false;
+			for (Thread w : writers) {
+				alive |= w.isAlive();
+			}
+		}
+		// make room for the last event.
+		t.flush();
+		t.sync(1200, 0);
+		t.flush();
+		// every event is either written or counted as lost.
+		assertEquals(4*5002 + 1, t.getWritten() + t.getLost());
+		TelemetryDecoder d = new TelemetryDecoder();
+		d.read(f);
+		assertEquals(t.getWritten(), events(d));
+		assertTrue(d.report(), d.report().contains("syncs: 1, 0 failed"));
+	}
+
+	@Test
+	public void rotatesFullFiles() throws Exception {
+		File f = new File(dir.getRoot(), "t.bin");
+		Telemetry t = new Telemetry(Clock.WALL);
+		t.start(f);
+		// about five files worth of events.
+		int n = (int)(5*Telemetry.MAX_FILE_SIZE/Telemetry.RECORD_SIZE);
+		int s = t.beginSession();
+		for (int i = 0; i < n; ++i) {
+			t.scan(s, i % 1000, 0);
+			if (i % (Telemetry.CAPACITY/2) == 0) t.flush();
+		}
+		t.flush();
+		assertEquals(0, t.getLost());
+		long kept = 0;
+		for (int i = 0; i <= Telemetry.KEEP; ++i) {
+			File g = new File(f.getPath()+(i == 0 ? "" : "."+i));
+			assertTrue(g.getName(), g.exists());
+			assertTrue(g.length() < Telemetry.MAX_FILE_SIZE + Telemetry.CAPACITY*Telemetry.RECORD_SIZE);
+			TelemetryDecoder d = new TelemetryDecoder();
+			d.read(g);
+			kept += events(d);
+		}
+		assertFalse(new File(f.getPath()+"."+(Telemetry.KEEP+1)).exists());
+		assertTrue(kept < t.getWritten());
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsForeignFiles() throws Exception {
+		File f = dir.newFile("other.bin");
+		FileOutputStream out = new FileOutputStream(f);
+		out.write(new byte[64]);
+		out.close();
+		new TelemetryDecoder().read(f);
+	}
+
+}
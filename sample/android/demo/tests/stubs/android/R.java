@@ -0,0 +1,7 @@
+package android;
+
+public final class R {
+	public static final class drawable {
+		public static final int arrow_up_float=1, arrow_down_float=2;
+	}
+}
@@ -0,0 +1,35 @@
+package android.app;
+
+import android.content.*;
+import android.os.Bundle;
+import android.view.*;
+
+public class Activity extends Context {
+	public void onCreate(Bundle b) {}
+	public void onResume() {}
+	public void onPause() {}
+	public void onDestroy() {}
+	public void onBackPressed() {}
+	public void setContentView(int id) {}
+	public View findViewById(int id) {
+		return null;
+	}
+	public void finish() {}
+	public void startActivity(Intent i) {}
+	public WindowManager getWindowManager() {
+		return null;
+	}
+	public MenuInflater getMenuInflater() {
+		return null;
+	}
+	public boolean onCreateOptionsMenu(Menu m) {
+		return true;
+	}
+	public boolean onOptionsItemSelected(MenuItem m) {
+		return true;
+	}
+	public void runOnUiThread(Runnable r) {}
+	public boolean isFinishing() {
+		return false;
+	}
+}
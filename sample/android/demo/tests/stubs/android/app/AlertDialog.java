@@ -0,0 +1,30 @@
+package android.app;
+
+import android.content.*;
+
+public class AlertDialog {
+	public static class Builder {
+		public Builder(Context c) {}
+		public Builder setCancelable(boolean b) {
+			return this;
+		}
+		public Builder setTitle(String s) {
+			return this;
+		}
+		public Builder setMessage(String s) {
+			return this;
+		}
+		public Builder setNeutralButton(String s, DialogInterface.OnClickListener l) {
+			return this;
+		}
+		public Builder setPositiveButton(String s, DialogInterface.OnClickListener l) {
+			return this;
+		}
+		public Builder setNegativeButton(String s, DialogInterface.OnClickListener l) {
+			return this;
+		}
+		public AlertDialog show() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package android.content;
+
+public class Context {
+	public static final int MODE_PRIVATE=0;
+	public SharedPreferences getSharedPreferences(String n,int m) {
+		return null;
+	}
+	public java.io.File getFilesDir() {
+		return null;
+	}
+	public java.io.File getCacheDir() {
+		return null;
+	}
+	public Context getApplicationContext() {
+		return this;
+	}
+	public Object getSystemService(String s) {
+		return null;
+	}
+	public static final String WINDOW_SERVICE="window";
+	public static final String CONNECTIVITY_SERVICE="connectivity";
+}
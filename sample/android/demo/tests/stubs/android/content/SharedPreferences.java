@@ -0,0 +1,22 @@
+package android.content;
+
+public interface SharedPreferences {
+	long getLong(String k,long d);
+	int getInt(String k,int d);
+	float getFloat(String k,float d);
+	String getString(String k,String d);
+	boolean getBoolean(String k, boolean d);
+	boolean contains(String k);
+	Editor edit();
+	interface Editor {
+		Editor putLong(String k,long v);
+		Editor putInt(String k,int v);
+		Editor putFloat(String k,float v);
+		Editor putString(String k,String v);
+		Editor putBoolean(String k,boolean v);
+		Editor remove(String k);
+		Editor clear();
+		boolean commit();
+		void apply();
+	}
+}
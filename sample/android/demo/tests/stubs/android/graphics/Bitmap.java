@@ -0,0 +1,12 @@
+package android.graphics;
+
+public class Bitmap {
+	public int getWidth() {
+		return 0;
+	}
+	public int getHeight() {
+		return 0;
+	}
+	public void getPixels(int[] p,int off,int stride,int x,int y,int w,int h) {}
+	public void recycle() {}
+}
@@ -0,0 +1,16 @@
+package android.graphics;
+
+public class BitmapFactory {
+	public static Bitmap decodeFile(String f) {
+		return null;
+	}
+	public static Bitmap decodeFile(String f, Options o) {
+		return null;
+	}
+	public static class Options {
+		public int inSampleSize;
+		public boolean inJustDecodeBounds;
+		public int outWidth;
+		public int outHeight;
+	}
+}
@@ -0,0 +1,5 @@
+package android.graphics;
+
+public class ImageFormat {
+	public static final int NV21=17;
+}
@@ -0,0 +1,47 @@
+package android.hardware;
+
+import java.util.List;
+
+public class Camera {
+	public static Camera open() {
+		return null;
+	}
+	public static Camera open(int id) {
+		return null;
+	}
+	public Parameters getParameters() {
+		return null;
+	}
+	public void setParameters(Parameters p) {}
+	public void setPreviewCallback(PreviewCallback c) {}
+	public void setPreviewCallbackWithBuffer(PreviewCallback c) {}
+	public void addCallbackBuffer(byte[] b) {}
+	public void setDisplayOrientation(int d) {}
+	public void stopPreview() {}
+	public void startPreview() {}
+	public void cancelAutoFocus() {}
+	public void release() {}
+	public void autoFocus(AutoFocusCallback c) {}
+	public void setPreviewDisplay(android.view.SurfaceHolder h) throws java.io.IOException {}
+	public class Size {
+		public Size(int w,int h) {
+			width=w;
+			height=h;
+		}
+		public int width;
+		public int height;
+	}
+	public class Parameters {
+		public List<Size> getSupportedPreviewSizes() {
+			return null;
+		}
+		public void setPreviewSize(int w,int h) {}
+		public void setPreviewFormat(int f) {}
+	}
+	public interface PreviewCallback {
+		void onPreviewFrame(byte[] d, Camera c);
+	}
+	public interface AutoFocusCallback {
+		void onAutoFocus(boolean s, Camera c);
+	}
+}
@@ -0,0 +1,7 @@
+package android.net;
+
+public class NetworkInfo {
+	public boolean isConnected() {
+		return false;
+	}
+}
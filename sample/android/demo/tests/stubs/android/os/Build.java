@@ -0,0 +1,9 @@
+package android.os;
+
+public class Build {
+	public static final String FINGERPRINT="";
+	public static final String MODEL="";
+	public static class VERSION {
+		public static final int SDK_INT=10;
+	}
+}
@@ -0,0 +1,20 @@
+package android.os;
+
+public class Bundle {
+	public void putBoolean(String k,boolean v) {}
+	public void putInt(String k,int v) {}
+	public void putString(String k,String v) {}
+	public void putBundle(String k,Bundle b) {}
+	public boolean getBoolean(String k) {
+		return false;
+	}
+	public int getInt(String k) {
+		return 0;
+	}
+	public String getString(String k) {
+		return null;
+	}
+	public Bundle getBundle(String k) {
+		return null;
+	}
+}
@@ -0,0 +1,40 @@
+package android.os;
+
+public class Handler {
+	public Handler() {}
+	public Handler(Looper l) {}
+	public void handleMessage(Message m) {}
+	public final boolean sendEmptyMessageDelayed(int w,long d) {
+		return true;
+	}
+	public final boolean sendEmptyMessage(int w) {
+		return true;
+	}
+	public final void removeMessages(int w) {}
+	public final boolean hasMessages(int w) {
+		return false;
+	}
+	public final boolean post(Runnable r) {
+		return true;
+	}
+	public final boolean postDelayed(Runnable r,long d) {
+		return true;
+	}
+	public final void removeCallbacks(Runnable r) {}
+	public final void removeCallbacksAndMessages(Object o) {}
+	public final Looper getLooper() {
+		return null;
+	}
+	public final Message obtainMessage(int w) {
+		return null;
+	}
+	public final Message obtainMessage(int w, Object o) {
+		return null;
+	}
+	public final boolean sendMessage(Message m) {
+		return true;
+	}
+	public final boolean sendMessageAtFrontOfQueue(Message m) {
+		return true;
+	}
+}
@@ -0,0 +1,14 @@
+package android.os;
+
+public class Looper {
+	public static Looper getMainLooper() {
+		return null;
+	}
+	public static Looper myLooper() {
+		return null;
+	}
+	public void quit() {}
+	public Thread getThread() {
+		return null;
+	}
+}
@@ -0,0 +1,10 @@
+package android.os;
+
+public class SystemClock {
+	public static long elapsedRealtime() {
+		return 0;
+	}
+	public static long uptimeMillis() {
+		return 0;
+	}
+}
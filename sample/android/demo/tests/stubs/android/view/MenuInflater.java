@@ -0,0 +1,5 @@
+package android.view;
+
+public class MenuInflater {
+	public void inflate(int id, Menu m) {}
+}
@@ -0,0 +1,13 @@
+package android.view;
+
+public interface SurfaceHolder {
+	int SURFACE_TYPE_PUSH_BUFFERS=3;
+	void setType(int t);
+	void addCallback(Callback c);
+	void removeCallback(Callback c);
+	interface Callback {
+		void surfaceChanged(SurfaceHolder h,int f,int w,int hh);
+		void surfaceCreated(SurfaceHolder h);
+		void surfaceDestroyed(SurfaceHolder h);
+	}
+}
@@ -0,0 +1,7 @@
+package android.view;
+
+public class SurfaceView extends View {
+	public SurfaceHolder getHolder() {
+		return null;
+	}
+}
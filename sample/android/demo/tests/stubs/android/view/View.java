@@ -0,0 +1,33 @@
+package android.view;
+
+import android.content.Context;
+
+public class View {
+	public static final int VISIBLE=0, INVISIBLE=4, GONE=8;
+	public View() {}
+	public View(Context c, android.util.AttributeSet a) {}
+	public void setVisibility(int v) {}
+	public int getVisibility() {
+		return 0;
+	}
+	public View findViewById(int id) {
+		return null;
+	}
+	public void setOnClickListener(OnClickListener l) {}
+	public void setEnabled(boolean b) {}
+	public Context getContext() {
+		return null;
+	}
+	public boolean post(Runnable r) {
+		return true;
+	}
+	public boolean postDelayed(Runnable r,long d) {
+		return true;
+	}
+	public boolean removeCallbacks(Runnable r) {
+		return true;
+	}
+	public interface OnClickListener {
+		void onClick(View v);
+	}
+}
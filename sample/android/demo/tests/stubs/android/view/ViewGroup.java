@@ -0,0 +1,7 @@
+package android.view;
+
+import android.content.Context;
+
+public class ViewGroup extends View {
+	public ViewGroup(Context c, android.util.AttributeSet a) {}
+}
@@ -0,0 +1,5 @@
+package android.widget;
+
+public class ImageView extends android.view.View {
+	public void setImageResource(int id) {}
+}
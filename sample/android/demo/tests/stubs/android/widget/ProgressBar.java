@@ -0,0 +1,6 @@
+package android.widget;
+
+public class ProgressBar extends android.view.View {
+	public void setMax(int m) {}
+	public void setProgress(int p) {}
+}
@@ -0,0 +1,9 @@
+package android.widget;
+
+import android.content.Context;
+
+public class RelativeLayout extends android.view.ViewGroup {
+	public RelativeLayout(Context c, android.util.AttributeSet a) {
+		super(c,a);
+	}
+}
@@ -0,0 +1,5 @@
+package android.widget;
+
+public class ScrollView extends android.view.View {
+	public void setSmoothScrollingEnabled(boolean b) {}
+}
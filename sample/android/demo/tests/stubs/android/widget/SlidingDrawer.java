@@ -0,0 +1,17 @@
+package android.widget;
+
+public class SlidingDrawer extends android.view.View {
+	public boolean isOpened() {
+		return false;
+	}
+	public void animateClose() {}
+	public void animateOpen() {}
+	public void setOnDrawerCloseListener(OnDrawerCloseListener l) {}
+	public void setOnDrawerOpenListener(OnDrawerOpenListener l) {}
+	public interface OnDrawerCloseListener {
+		void onDrawerClosed();
+	}
+	public interface OnDrawerOpenListener {
+		void onDrawerOpened();
+	}
+}
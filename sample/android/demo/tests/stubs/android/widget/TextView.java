@@ -0,0 +1,7 @@
+package android.widget;
+
+public class TextView extends android.view.View {
+	public void setText(CharSequence s) {}
+	public void setText(int id) {}
+	public void setText(char[] t,int s,int l) {}
+}
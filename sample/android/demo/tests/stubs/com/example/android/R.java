@@ -0,0 +1,16 @@
+package com.example.android;
+
+public final class R {
+	public static final class id {
+		public static final int overlay=1,preview=2,drawer=3,scroll=4,ean_info=5,qrcode_info=6,images_info=7,result=8,info1=9,info2=10,handle=11,scan_button=12,splash=13,infinite=14,progress=15,splash_text=16,sync=17,title=18;
+	}
+	public static final class layout {
+		public static final int main=1,home=2;
+	}
+	public static final class string {
+		public static final int initializing=1, syncing=2;
+	}
+	public static final class menu {
+		public static final int menu=1;
+	}
+}
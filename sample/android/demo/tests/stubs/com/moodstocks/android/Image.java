@@ -0,0 +1,5 @@
+package com.moodstocks.android;
+
+public class Image {
+	public Image(byte[] d,int w,int h,int s,int o) {}
+}
@@ -0,0 +1,15 @@
+package com.moodstocks.android;
+
+public class MoodstocksError extends Exception {
+	private int code;
+	public MoodstocksError(String m,int c) {
+		code=c;
+	}
+	public int getErrorCode() {
+		return code;
+	}
+	public void log() {}
+	public static class Code {
+		public static final int SUCCESS=0, ERROR=1, MISUSE=2, NOPERM=3, NOFILE=4, BUSY=5, CORRUPT=6, EMPTY=7, AUTH=8, NOCONN=9, TIMEOUT=10, THREAD=11, CREDMISMATCH=12, SLOWCONN=13, NOREC=14, ABORT=15;
+	}
+}
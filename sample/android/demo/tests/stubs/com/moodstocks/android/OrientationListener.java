@@ -0,0 +1,13 @@
+package com.moodstocks.android;
+
+public class OrientationListener {
+	public static void init(android.content.Context c) {}
+	public static OrientationListener get() {
+		return null;
+	}
+	public void enable() {}
+	public void disable() {}
+	public int getOrientation() {
+		return 0;
+	}
+}
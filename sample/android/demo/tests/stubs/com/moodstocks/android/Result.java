@@ -0,0 +1,21 @@
+package com.moodstocks.android;
+
+public class Result {
+	private int type;
+	private String value;
+	public Result() {}
+	// stub only: lets tests and benchmarks build results.
+	public Result(int type, String value) {
+		this.type = type;
+		this.value = value;
+	}
+	public int getType() {
+		return type;
+	}
+	public String getValue() {
+		return value;
+	}
+	public static class Type {
+		public static final int NONE=0, EAN8=1, EAN13=2, QRCODE=4, IMAGE=0x80000000;
+	}
+}
@@ -0,0 +1,25 @@
+package com.moodstocks.android;
+
+public class Scanner {
+	public static boolean isCompatible() {
+		return true;
+	}
+	public static Scanner get() throws MoodstocksError {
+		return null;
+	}
+	public void open(android.content.Context c,String f) throws MoodstocksError {}
+	public void close() throws MoodstocksError {}
+	public int count() throws MoodstocksError {
+		return 0;
+	}
+	public void sync(SyncListener l) {}
+	public boolean isSyncing() {
+		return false;
+	}
+	public interface SyncListener {
+		void onSyncStart();
+		void onSyncComplete();
+		void onSyncFailed(MoodstocksError e);
+		void onSyncProgress(int t,int c);
+	}
+}
@@ -0,0 +1,26 @@
+package com.moodstocks.android;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ScannerSession {
+	// sessions created so far, and the listener of their last scan, for
+	// tests to complete scans by hand.
+	public static final List<ScannerSession> created = new ArrayList<ScannerSession>();
+	public ScanListener last;
+	public ScannerSession(Scanner s) {
+		synchronized(created) {
+			created.add(this);
+		}
+	}
+	public void setOptions(int o) {}
+	public void scan(ScanListener l, Image i) {
+		last = l;
+	}
+	public void scanCancel() {}
+	public interface ScanListener {
+		void onScanStart();
+		void onScanComplete(Result r);
+		void onScanFailed(MoodstocksError e);
+	}
+}